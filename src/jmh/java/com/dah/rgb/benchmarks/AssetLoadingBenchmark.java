@@ -0,0 +1,146 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.audio.io.AudioSource;
+import com.dah.rgb.audio.io.SilentVorbisWriter;
+import com.dah.rgb.threads.impl.AssetThread;
+import com.dah.rgb.utils.Image;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.lwjgl.stb.STBImageWrite.stbi_write_png;
+import static org.lwjgl.system.MemoryUtil.*;
+
+// decodes every PNG and OGG of a folder through AssetThread.load, 1 worker vs N workers
+// -Dcom.dah.rgb.bench.AssetFolder=<dir> picks the folder, otherwise noise PNGs and silent OGGs are generated,
+// see SilentVorbisWriter for how much of a real decode the OGGs cost
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AssetLoadingBenchmark {
+    private static final int GENERATED_IMAGES = 64, GENERATED_IMAGE_SIZE = 512;
+    private static final int GENERATED_AUDIOS = 16, GENERATED_AUDIO_SECONDS = 30;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int workers;
+
+    private List<Path> images, audios;
+    private Path generatedFolder;
+    private AssetThread<HeadlessGame> assetThread;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var folderProperty = System.getProperty("com.dah.rgb.bench.AssetFolder");
+        Path folder;
+        if(folderProperty != null) {
+            folder = Path.of(folderProperty);
+        } else {
+            folder = generatedFolder = Files.createTempDirectory("rgb-asset-bench");
+            generateImages(folder);
+            generateAudios(folder);
+        }
+
+        images = new ArrayList<>();
+        audios = new ArrayList<>();
+        try(Stream<Path> files = Files.walk(folder)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                var name = file.getFileName().toString().toLowerCase();
+                if(name.endsWith(".png") || name.endsWith(".jpg")) {
+                    images.add(file);
+                } else if(name.endsWith(".ogg")) {
+                    audios.add(file);
+                }
+            });
+        }
+        assetThread = new AssetThread<>(new HeadlessGame(), workers) {
+            @Override
+            public boolean init() {
+                // no audio thread to wait for
+                return true;
+            }
+        };
+        assetThread.startThread();
+        assetThread.waitForInitialization();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        assetThread.interrupt();
+        assetThread.allowDestroy();
+        assetThread.join();
+        if(generatedFolder != null) {
+            try(Stream<Path> files = Files.walk(generatedFolder)) {
+                for(var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void loadFolder() {
+        var futures = new ArrayList<CompletableFuture<?>>(images.size() + audios.size());
+        for(var image : images) {
+            futures.add(assetThread.load(() -> decodeImage(image)));
+        }
+        for(var audio : audios) {
+            futures.add(assetThread.load(() -> decodeAudio(audio)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private static int decodeImage(Path path) throws IOException {
+        try(var image = Image.loadSTB(path)) {
+            return image.data().capacity();
+        }
+    }
+
+    // same work as Sound.init minus the OpenAL upload
+    private static int decodeAudio(Path path) throws IOException {
+        try(var source = AudioSource.loadVorbisSTB(path)) {
+            var pcm = memAllocShort(source.getSamplesLength() * source.getChannels());
+            try {
+                return source.getSamples(pcm);
+            } finally {
+                memFree(pcm);
+            }
+        }
+    }
+
+    private static void generateImages(Path folder) throws IOException {
+        var random = new Random(0);
+        var pixels = memAlloc(GENERATED_IMAGE_SIZE * GENERATED_IMAGE_SIZE * 4);
+        try {
+            for(int i = 0; i < GENERATED_IMAGES; i++) {
+                for(int j = 0; j < pixels.capacity(); j++) {
+                    // blocky noise, so the files compress like real artwork instead of pure noise
+                    pixels.put(j, (byte) ((j / 64 + i) * 31 + random.nextInt(16)));
+                }
+                var file = folder.resolve("image" + i + ".png");
+                if(!stbi_write_png(file.toString(), GENERATED_IMAGE_SIZE, GENERATED_IMAGE_SIZE, 4, pixels, GENERATED_IMAGE_SIZE * 4)) {
+                    throw new IOException("Unable to write " + file);
+                }
+            }
+        } finally {
+            memFree(pixels);
+        }
+    }
+
+    private static void generateAudios(Path folder) throws IOException {
+        for(int i = 0; i < GENERATED_AUDIOS; i++) {
+            SilentVorbisWriter.write(folder.resolve("audio" + i + ".ogg"), GENERATED_AUDIO_SECONDS * 44100, 44100, 2, 16);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.audio.AudioClock;
+import com.dah.rgb.game.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// reading the music position from gameplay/render threads while an "audio thread" keeps updating it
+//   published: Music.readClock(), a seqlock read of the last published snapshot
+//   hop:       the old Audio.getCurrentTime(source) shape, a CompletableFuture hop to the audio
+//              thread and a synchronized read there (without the OpenAL query itself)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AudioClockBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+
+    private AudioClock clock;
+    private ExecutorService audioThread;
+    private Thread publisher;
+    private volatile boolean running;
+    private long samplePosition;
+    private double lastALTime, lastGameTime;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        clock = new AudioClock();
+        audioThread = Executors.newSingleThreadExecutor();
+        running = true;
+        // roughly the audio thread refill rate
+        publisher = new Thread(() -> {
+            while(running) {
+                synchronized (this) {
+                    samplePosition += SAMPLE_RATE / 100;
+                    clock.publish(samplePosition, SAMPLE_RATE, 0.02, Game.getCurrentTime(), true);
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }, "BenchmarkAudioPublisher");
+        publisher.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        publisher.join();
+        audioThread.shutdown();
+    }
+
+    @Benchmark
+    public double published() {
+        return clock.read();
+    }
+
+    @Benchmark
+    public double hop() {
+        return CompletableFuture.supplyAsync(this::getCurrentTimeAudio, audioThread).join();
+    }
+
+    // same extrapolation as Audio.getCurrentTimeAudio
+    private synchronized double getCurrentTimeAudio() {
+        var currentALTime = (double) samplePosition / SAMPLE_RATE;
+        var currentGameTime = Game.getCurrentTime();
+        if(currentALTime - lastALTime < 1e-3) {
+            return currentALTime + (currentGameTime - lastGameTime);
+        }
+        lastALTime = currentALTime;
+        lastGameTime = currentGameTime;
+        return lastALTime;
+    }
+}
@@ -0,0 +1,64 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.audio.Music;
+import com.dah.rgb.threads.impl.AudioThread;
+import com.dah.rgb.utils.Config;
+import com.dah.rgb.utils.Ref;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// the playback position of a playing Music, read from 4 gameplay threads
+// the audio thread runs on a loopback device paced to the wall clock, so it schedules like a real one
+//   getCurrentTime: Audio.getCurrentTime(source), through the audio thread
+//   readClock:      Music.readClock(), the published clock
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AudioCurrentTimeBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+
+    private AudioThread<HeadlessGame> audioThread;
+    private Music music;
+    private int source;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // read once by AudioThread, before the game builds it
+        Config.AUDIO_LOOPBACK.set(true);
+        Config.AUDIO_LOOPBACK_REALTIME.set(true);
+        audioThread = new HeadlessGame().getAudioThread();
+        audioThread.startThread();
+        audioThread.waitForInitialization();
+        if(audioThread.getLoopback() == null) {
+            throw new IllegalStateException("Unable to open an OpenAL loopback device");
+        }
+
+        music = audioThread.initMusic(new Ref.Own<>(new SineAudioSource(SAMPLE_RATE, 600))).join();
+        music.setLoop(true);
+        source = music.play().join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        music.stop(source).join();
+        music.close();
+        audioThread.interrupt();
+        audioThread.allowDestroy();
+        audioThread.join();
+    }
+
+    @Benchmark
+    public double getCurrentTime() {
+        return music.getCurrentTime(source).join();
+    }
+
+    @Benchmark
+    public double readClock() {
+        return music.readClock();
+    }
+}
@@ -0,0 +1,82 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.threads.base.ExecutorThread;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ExecutorThread.execute from 4 producers while the thread drains its queues
+//   execute:         submission cost alone, the thread keeps draining in the background
+//   executeAndDrain: a batch of works, then waiting until the thread ran all of them
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ExecutorThreadBenchmark {
+    private static final int BATCH = 64;
+
+    @Param({"true", "false"})
+    public boolean waitForWorks;
+
+    private HeadlessGame game;
+    private ExecutorThread<HeadlessGame> executor;
+
+    @State(Scope.Thread)
+    public static class Producer {
+        private final AtomicLong executed = new AtomicLong();
+        // allocated once, so the benchmark measures the queue and not the lambda
+        private final Runnable work = executed::incrementAndGet;
+        private long submitted;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = new HeadlessGame();
+        executor = new ExecutorThread<>(game, ExecutorThread.ExecutionPolicy.EXECUTE_AS_MUCH_AS_POSSIBLE, waitForWorks) {
+            @Override
+            public boolean init() {
+                // no audio thread to wait for
+                return true;
+            }
+
+            @Override
+            public void closeInThread() {
+            }
+
+            @Override
+            protected String threadName() {
+                return "BenchmarkExecutor";
+            }
+        };
+        executor.startThread();
+        executor.waitForInitialization();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.interrupt();
+        executor.allowDestroy();
+        executor.join();
+    }
+
+    @Benchmark
+    public void execute(Producer producer) {
+        executor.execute(producer.work);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void executeAndDrain(Producer producer) {
+        for(int i = 0; i < BATCH; i++) {
+            executor.execute(producer.work);
+        }
+        producer.submitted += BATCH;
+        while(producer.executed.get() < producer.submitted) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.game.Game;
+import com.dah.rgb.threads.impl.GraphicsThread;
+import org.lwjgl.opengl.GLCapabilities;
+
+// a Game without display nor OpenGL, so engine threads can be built in benchmarks
+// none of its threads is started, benchmarks start or drive the ones they need
+final class HeadlessGame extends Game<HeadlessGame> {
+    @Override
+    protected boolean createDisplay() {
+        return true;
+    }
+
+    @Override
+    protected void pollEvents() {
+    }
+
+    @Override
+    protected @NotNull HeadlessGame self() {
+        return this;
+    }
+
+    @Override
+    public @Nullable GLCapabilities initOpenGL(GraphicsThread<HeadlessGame> graphicsThread) {
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.utils.Image;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.stb.STBImageWrite.stbi_write_png;
+import static org.lwjgl.system.MemoryUtil.*;
+
+// Image.loadSTB of one PNG already in memory, so only probing and decoding are measured
+// the PNG is generated: smooth gradients with some noise, closer to game art than pure noise
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageLoadBenchmark {
+    @Param({"256", "1024"})
+    public int size;
+
+    @Param({"3", "4"})
+    public int components;
+
+    private ByteBuffer encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var random = new Random(42);
+        var pixels = memAlloc(size * size * components);
+        for(int y = 0; y < size; y++) {
+            for(int x = 0; x < size; x++) {
+                var base = (y * size + x) * components;
+                for(int c = 0; c < components; c++) {
+                    var value = (x * (c + 1) + y * (3 - c)) * 255 / (4 * size) + random.nextInt(8);
+                    pixels.put(base + c, (byte) value);
+                }
+            }
+        }
+        var file = Files.createTempFile("rgb-bench", ".png");
+        try {
+            if(!stbi_write_png(file.toString(), size, size, components, pixels, size * components)) {
+                throw new IOException("Unable to write " + file);
+            }
+            var bytes = Files.readAllBytes(file);
+            encoded = memAlloc(bytes.length).put(bytes).flip();
+        } finally {
+            memFree(pixels);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        memFree(encoded);
+    }
+
+    @Benchmark
+    public int loadSTB() throws IOException {
+        try(var image = Image.loadSTB(encoded, "benchmark.png")) {
+            return image.size().width();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.game.Game;
+import com.dah.rgb.input.InputEvent;
+import com.dah.rgb.input.InputEventHandler;
+import com.dah.rgb.input.InputEventQueue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.TimeUnit;
+
+// InputEventQueue, from the stamp in the input callback to the consumer
+//   offerPoll: stamping, queueing and polling an event on one thread
+//   handoff:   an input thread stamps and offers an event and waits until a consumer thread drained it,
+//              the time of the producer is the input-to-consumer latency (the consumer time is its polling)
+// the stamp-to-drain latency seen by the consumer is reported by the DrainCounters secondary results
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputLatencyBenchmark {
+    // JMH sums events over the iterations, so only sums are reported: latencyNanos / drained is the mean
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class DrainCounters implements InputEventHandler {
+        public long drained, latencyNanos;
+        // drained more than 100 us after their stamp
+        public long late;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            drained = latencyNanos = late = 0;
+        }
+
+        @Override
+        public void onEvent(int type, int device, int code, int action, int mods, double x, double y, double time) {
+            var latency = (long) ((Game.getCurrentTime() - time) * 1e6);
+            drained++;
+            latencyNanos += latency;
+            if(latency > 100_000) {
+                late++;
+            }
+        }
+    }
+
+    private InputEventQueue queue;
+    private InputEvent event;
+    private volatile long consumed;
+    private long produced;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        queue = new InputEventQueue(Game.INPUT_QUEUE_CAPACITY);
+        event = new InputEvent();
+        consumed = produced = 0;
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    public InputEvent offerPoll() {
+        queue.offer(InputEvent.KEY, 0, 32, 1, 0, 0.0, 0.0, Game.getCurrentTime());
+        queue.poll(event);
+        return event;
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public void producer(Control control) {
+        queue.offer(InputEvent.KEY, 0, 32, 1, 0, 0.0, 0.0, Game.getCurrentTime());
+        produced++;
+        // the consumer may already be done with the iteration
+        while(consumed < produced && !control.stopMeasurement) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public int consumer(DrainCounters counters) {
+        var drained = queue.drain(counters);
+        if(drained == 0) {
+            Thread.onSpinWait();
+        } else {
+            consumed += drained;
+        }
+        return drained;
+    }
+}
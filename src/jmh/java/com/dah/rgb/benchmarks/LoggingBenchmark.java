@@ -0,0 +1,115 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.utils.logging.AsyncLogger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+// AsyncLogger.log from a hot path, the cost paid by the logging thread (the writer runs on its own thread)
+//   disabled:         a level the logger drops, which should cost next to nothing
+//   enabled:          a queued record, below the caller level so the caller isn't walked
+//   enabledWithCaller: a queued record with the caller walked
+//   synchronous:      the same record published on the calling thread, what Game.log cost before AsyncLogger
+// every invocation logs BATCH records into an empty ring and the ring is drained between invocations,
+// so the enqueueing is measured, not the writer falling behind, the dropped counter should stay at 0
+// the handler only counts so no I/O is measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+    private static final int BATCH = 1024;
+
+    // records the ring dropped because it was full, JMH sums it over the iterations
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Drops {
+        public long dropped;
+
+        @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+        public void reset() {
+            dropped = 0;
+        }
+    }
+
+    private Logger logger;
+    private AsyncLogger asyncLogger;
+    private volatile long published;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() {
+        logger = Logger.getLogger(LoggingBenchmark.class.getName());
+        logger.setLevel(Level.INFO);
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                published++;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        // the ring holds 4 batches, so it never gets half full and wakes the writer during a batch,
+        // the writer's own wake up interval is longer than the benchmark
+        asyncLogger = new AsyncLogger(logger, 4 * BATCH, Level.WARNING, TimeUnit.HOURS.toNanos(1));
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        asyncLogger.close();
+        for(var handler : logger.getHandlers()) {
+            logger.removeHandler(handler);
+        }
+    }
+
+    @Setup(org.openjdk.jmh.annotations.Level.Invocation)
+    public void drain() {
+        asyncLogger.flush();
+    }
+
+    private void logBatch(Level level, Drops drops) {
+        var before = asyncLogger.getDroppedCount();
+        for(int i = 0; i < BATCH; i++) {
+            asyncLogger.log(level, "benchmark message", null, 0);
+        }
+        drops.dropped += asyncLogger.getDroppedCount() - before;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void disabled(Drops drops) {
+        logBatch(Level.FINE, drops);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void enabled(Drops drops) {
+        logBatch(Level.INFO, drops);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void enabledWithCaller(Drops drops) {
+        logBatch(Level.WARNING, drops);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void synchronous() {
+        for(int i = 0; i < BATCH; i++) {
+            logger.logp(Level.INFO, LoggingBenchmark.class.getName(), "synchronous", "benchmark message");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.audio.MixerSample;
+import com.dah.rgb.audio.SoftwareMixer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// SoftwareMixer.mix of 10 ms blocks at 48 kHz with every voice busy, without OpenAL
+// a score is milliseconds of audio mixed per millisecond, times the voices param it is the voices mixed
+// per millisecond, so how many voices one core keeps up with in real time
+//   sampleRate 48000: voices on the copy path, 44100: voices resampled by linear interpolation
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixerBenchmark {
+    private static final int MIXER_RATE = 48000;
+    private static final int BLOCK_FRAMES = MIXER_RATE / 100;
+    private static final int BLOCK_MILLIS = 10;
+    private static final int SAMPLES = 8;
+
+    @Param({"16", "64", "256"})
+    public int voices;
+
+    @Param({"48000", "44100"})
+    public int sampleRate;
+
+    @Param({"1", "2"})
+    public int channels;
+
+    private SoftwareMixer mixer;
+    private MixerSample[] samples;
+    private ShortBuffer out;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new Random(42);
+        mixer = new SoftwareMixer(MIXER_RATE, voices, BLOCK_FRAMES, null);
+        // short hit sounds of different lengths, so voices end and restart on different blocks
+        samples = new MixerSample[SAMPLES];
+        for(int i = 0; i < SAMPLES; i++) {
+            var frames = sampleRate / 10 + random.nextInt(sampleRate / 5);
+            var data = new short[frames * channels];
+            for(int j = 0; j < data.length; j++) {
+                data[j] = (short) (random.nextGaussian() * 4000);
+            }
+            samples[i] = new MixerSample(data, channels, sampleRate);
+        }
+        out = ShortBuffer.allocate(BLOCK_FRAMES * 2);
+        refill();
+    }
+
+    private void refill() {
+        for(int i = mixer.getActiveVoices(); i < voices; i++) {
+            mixer.play(samples[random.nextInt(SAMPLES)], 0.25f, random.nextFloat() * 2 - 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK_MILLIS)
+    public ShortBuffer mixBlock() {
+        refill();
+        out.clear();
+        mixer.mix(out, BLOCK_FRAMES);
+        return out;
+    }
+}
@@ -0,0 +1,68 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.audio.io.AudioSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.system.MemoryUtil.memAllocShort;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+// random seeks over a long track, each followed by the first stream buffer after the seek
+//   stb-file:   stb_vorbis_seek on a stdio decoder
+//   stb-mapped: stb_vorbis_seek on a decoder over the mapped file
+// -Dcom.dah.rgb.bench.MusicFile=<.ogg, ideally ~10 minutes long> is required
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MusicSeekBenchmark {
+    private static final int TARGETS = 1024;
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+
+    @Param({"stb-file", "stb-mapped"})
+    public String mode;
+
+    private AudioSource source;
+    private ShortBuffer pcm;
+    private int[] targets;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var file = System.getProperty("com.dah.rgb.bench.MusicFile");
+        if(file == null) {
+            throw new IllegalStateException("Set -Dcom.dah.rgb.bench.MusicFile to an .ogg file");
+        }
+        var path = Path.of(file);
+        source = switch(mode) {
+            case "stb-file" -> AudioSource.loadVorbisSTBFromFile(path);
+            case "stb-mapped" -> AudioSource.loadVorbisSTB(path);
+            default -> throw new IllegalArgumentException(mode);
+        };
+        pcm = memAllocShort(STREAM_BUFFER_SIZE);
+        var random = new Random(42);
+        targets = new int[TARGETS];
+        for(int i = 0; i < TARGETS; i++) {
+            targets[i] = random.nextInt(source.getSamplesLength());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        source.close();
+        memFree(pcm);
+    }
+
+    @Benchmark
+    public int seek() {
+        source.seek(targets[next++ & (TARGETS - 1)]);
+        return source.getSamples(pcm);
+    }
+}
@@ -0,0 +1,84 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.audio.LoopbackRenderer;
+import com.dah.rgb.audio.Music;
+import com.dah.rgb.audio.io.AudioSource;
+import com.dah.rgb.threads.impl.AudioThread;
+import com.dah.rgb.utils.Config;
+import com.dah.rgb.utils.Ref;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Vorbis decode through Music.stream, on a loopback device so it runs headless
+// the benchmark thread stands in for the audio thread: it renders one stream buffer of playback
+// outside the measurement, then Music.update refills what was played, only the refill is timed
+//   decodeAhead 0: the refill decodes on the audio thread
+//   decodeAhead 8: the refill copies from the ring, a decoder worker decodes in the background
+// -Dcom.dah.rgb.bench.MusicFile=<.ogg> is required
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MusicStreamBenchmark {
+    @Param({"0", "8"})
+    public int decodeAhead;
+
+    private AudioThread<HeadlessGame> audioThread;
+    private LoopbackRenderer loopback;
+    private Music music;
+    private int rendersPerBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        var file = System.getProperty("com.dah.rgb.bench.MusicFile");
+        if(file == null) {
+            throw new IllegalStateException("Set -Dcom.dah.rgb.bench.MusicFile to an .ogg file");
+        }
+        // read once by AudioThread, before the game builds it
+        Config.AUDIO_LOOPBACK.set(true);
+        audioThread = new HeadlessGame().getAudioThread();
+        if(!audioThread.init()) {
+            throw new IllegalStateException("Unable to open an OpenAL loopback device");
+        }
+        loopback = audioThread.getLoopback();
+
+        var source = AudioSource.loadVorbisSTB(Path.of(file));
+        var framesPerBuffer = Config.STREAM_BUFFER_SIZE.get(8 * 1024) / source.getChannels();
+        var deviceFrames = (double) framesPerBuffer * loopback.getSampleRate() / source.getSampleRate();
+        rendersPerBuffer = (int) Math.ceil(deviceFrames / loopback.getBlockFrames());
+
+        music = new Music(audioThread, new Ref.Own<>(source), decodeAhead);
+        music.setLoop(true);
+        music.init();
+        music.playAudio();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        music.stopAudio(music.getSource());
+        // close() waits for the audio thread, which is us
+        var closing = CompletableFuture.runAsync(music::close);
+        while(!closing.isDone()) {
+            audioThread.loop();
+        }
+        audioThread.closeInThread();
+    }
+
+    // about a stream buffer of mixing per invocation, well above the cost of an invocation level fixture
+    @Setup(Level.Invocation)
+    public void play() {
+        for(int i = 0; i < rendersPerBuffer; i++) {
+            loopback.render();
+        }
+    }
+
+    @Benchmark
+    public boolean refill() {
+        return music.update();
+    }
+}
@@ -0,0 +1,100 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.audio.io.AudioSource;
+import com.dah.rgb.audio.io.PCMCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.lwjgl.system.MemoryUtil.memAllocShort;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+// startup cost of getting every sound of a folder ready for alBufferData
+//   decode: plain stb_vorbis decode, what Sound.init used to do
+//   cold:   empty PCM cache, decode + write the cache files
+//   warm:   populated PCM cache, map the cache files
+// -Dcom.dah.rgb.bench.SoundFolder=<dir with .ogg files> is required
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PCMCacheBenchmark {
+    @Param({"decode", "cold", "warm"})
+    public String mode;
+
+    private List<Path> sounds;
+    private Path cacheDirectory;
+    private PCMCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var folder = System.getProperty("com.dah.rgb.bench.SoundFolder");
+        if(folder == null) {
+            throw new IllegalStateException("Set -Dcom.dah.rgb.bench.SoundFolder to a folder of .ogg files");
+        }
+        try(Stream<Path> files = Files.walk(Path.of(folder))) {
+            sounds = files.filter(file -> file.getFileName().toString().toLowerCase().endsWith(".ogg")).toList();
+        }
+        cacheDirectory = Files.createTempDirectory("rgb-pcm-bench");
+        cache = new PCMCache(cacheDirectory);
+        if(mode.equals("warm")) {
+            loadAll();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearCache() throws IOException {
+        if(mode.equals("cold")) {
+            deleteCacheFiles();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        deleteCacheFiles();
+        Files.deleteIfExists(cacheDirectory);
+    }
+
+    @Benchmark
+    public long startup() throws IOException {
+        return mode.equals("decode")? decodeAll() : loadAll();
+    }
+
+    private long decodeAll() throws IOException {
+        long samples = 0;
+        for(var sound : sounds) {
+            try(var source = AudioSource.loadVorbisSTB(sound)) {
+                var pcm = memAllocShort(source.getSamplesLength() * source.getChannels());
+                samples += source.getSamples(pcm);
+                memFree(pcm);
+            }
+        }
+        return samples;
+    }
+
+    private long loadAll() throws IOException {
+        long samples = 0;
+        for(var sound : sounds) {
+            try(var source = cache.loadVorbis(sound)) {
+                samples += source.getDecodedSamples().remaining();
+            }
+        }
+        return samples;
+    }
+
+    private void deleteCacheFiles() throws IOException {
+        try(Stream<Path> files = Files.list(cacheDirectory)) {
+            for(var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.scenes.ChildlessScene;
+import com.dah.rgb.scenes.CompositeSceneManager;
+import com.dah.rgb.scenes.NullScene;
+import com.dah.rgb.scenes.SceneManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// CompositeSceneManager.update with independent layers, the time the update thread spends per frame
+//   parallel false: every layer updates in order on the calling thread (before)
+//   parallel true:  the layers update on the fork-join pool and are joined (after)
+// each layer burns about `work` tokens of CPU, roughly what a visualizer or a particle layer does per update
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneUpdateBenchmark {
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    @Param({"4"})
+    public int layers;
+
+    @Param({"20000"})
+    public int work;
+
+    private CompositeSceneManager<HeadlessGame> manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var game = new HeadlessGame();
+        manager = new CompositeSceneManager<>();
+        manager.setParallel(parallel);
+        for(int i = 0; i < layers; i++) {
+            manager.addChild(new Layer(game, work));
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        manager.update();
+    }
+
+    private static final class Layer extends ChildlessScene<HeadlessGame, NullScene<HeadlessGame, SceneManager<HeadlessGame>>> {
+        private final int work;
+
+        private Layer(HeadlessGame game, int work) {
+            super(game, null);
+            this.work = work;
+        }
+
+        @Override
+        public boolean isIndependent() {
+            return true;
+        }
+
+        @Override
+        public void update() {
+            super.update();
+            Blackhole.consumeCPU(work);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.audio.io.AudioSource;
+
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.openal.AL10.AL_FORMAT_STEREO16;
+
+// endless-enough stereo sine, for audio benchmarks which need something playing but no asset
+final class SineAudioSource implements AudioSource {
+    private final int sampleRate, length;
+    private int position;
+
+    SineAudioSource(int sampleRate, int seconds) {
+        this.sampleRate = sampleRate;
+        this.length = sampleRate * seconds;
+    }
+
+    @Override
+    public int getChannels() {
+        return 2;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getALBufferFormat() {
+        return AL_FORMAT_STEREO16;
+    }
+
+    @Override
+    public int getSamplesLength() {
+        return length;
+    }
+
+    @Override
+    public int getSamples(@NotNull ShortBuffer pcm) {
+        var base = pcm.position();
+        var frames = Math.min(pcm.remaining() / 2, length - position);
+        for(int i = 0; i < frames; i++) {
+            var value = (short) (Math.sin((position + i) * (2 * Math.PI * 440 / sampleRate)) * 8000);
+            pcm.put(base + 2 * i, value);
+            pcm.put(base + 2 * i + 1, value);
+        }
+        position += frames;
+        return frames;
+    }
+
+    @Override
+    public void seek(int sampleIndex) {
+        position = Math.max(0, Math.min(sampleIndex, length));
+    }
+
+    @Override
+    public void close() {
+    }
+}
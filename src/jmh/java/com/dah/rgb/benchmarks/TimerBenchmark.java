@@ -0,0 +1,49 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.game.Game;
+import com.dah.rgb.utils.timers.CustomizableTimer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// CustomizableTimer.getTime, which every scene polls several times per frame
+//   raw: Game.GLOBAL_TIMER, the source of the customizable timers
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerBenchmark {
+    private CustomizableTimer running, paused, nested;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        running = new CustomizableTimer(Game.GLOBAL_TIMER);
+        running.setSpeed(1.5);
+        paused = new CustomizableTimer(Game.GLOBAL_TIMER);
+        paused.pause();
+        // a gameplay timer on top of a song timer
+        nested = new CustomizableTimer(running);
+    }
+
+    @Benchmark
+    public double raw() {
+        return Game.GLOBAL_TIMER.getTime();
+    }
+
+    @Benchmark
+    public double running() {
+        return running.getTime();
+    }
+
+    @Benchmark
+    public double paused() {
+        return paused.getTime();
+    }
+
+    @Benchmark
+    public double nested() {
+        return nested.getTime();
+    }
+}
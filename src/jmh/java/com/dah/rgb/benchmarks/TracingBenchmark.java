@@ -0,0 +1,42 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.utils.tracing.SpanBuffer;
+import com.dah.rgb.utils.tracing.Tracing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// one span around nothing, the overhead every traced loop and work pays
+//   enabled false: the toggle check alone
+//   enabled true:  two nanoTime calls and the ring write
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingBenchmark {
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private SpanBuffer spans;
+    private boolean previous;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        previous = Tracing.isEnabled();
+        Tracing.setEnabled(enabled);
+        spans = Tracing.currentBuffer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Tracing.setEnabled(previous);
+    }
+
+    @Benchmark
+    public void span() {
+        var span = spans.begin();
+        spans.end(span, TracingBenchmark.class, "benchmark");
+    }
+}
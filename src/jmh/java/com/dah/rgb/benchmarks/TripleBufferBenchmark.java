@@ -0,0 +1,74 @@
+package com.dah.rgb.benchmarks;
+
+import com.dah.rgb.utils.concurrent.TripleBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// TripleBuffer handoff of a render state of `size` floats (e.g. sprite positions)
+//   handoff:   an update thread writes and publishes frames while a render thread acquires them,
+//              neither waits for the other, the Frames secondary results count published, dropped and repeated frames
+//   roundTrip: publish and acquire on one thread, the bookkeeping cost alone
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TripleBufferBenchmark {
+    // each side counts its own events, JMH sums them over the iterations
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Frames {
+        public long published, dropped, repeated;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            published = dropped = repeated = 0;
+        }
+    }
+
+    @Param({"1024"})
+    public int size;
+
+    private TripleBuffer<float[]> buffer;
+    private float[] source;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        buffer = new TripleBuffer<>(() -> new float[size]);
+        source = new float[size];
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public void update(Frames frames) {
+        var state = buffer.beginWrite();
+        source[0]++;
+        System.arraycopy(source, 0, state, 0, size);
+        // the counters are only written by this thread, reading them is a plain load on x86
+        var dropped = buffer.getDroppedCount();
+        buffer.publish();
+        frames.published++;
+        frames.dropped += buffer.getDroppedCount() - dropped;
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public float render(Frames frames) {
+        var repeated = buffer.getRepeatedCount();
+        var state = buffer.acquire();
+        frames.repeated += buffer.getRepeatedCount() - repeated;
+        return state[0] + state[size - 1];
+    }
+
+    @Benchmark
+    @Group("roundTrip")
+    public float roundTrip() {
+        buffer.beginWrite()[0]++;
+        buffer.publish();
+        return buffer.acquire()[0];
+    }
+}
@@ -0,0 +1,14 @@
+package com.dah.rgb.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.CONSTRUCTOR;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+// the thread running Game.update: the main thread, or the UpdateThread when Game.INPUT_THREAD is set
+@Retention(RUNTIME)
+@Target({METHOD, CONSTRUCTOR})
+public @interface CalledInUpdateThread {
+}
@@ -93,7 +93,9 @@ public abstract class Audio implements AutoCloseable {
 
     @CalledInAnyThread
     public @NotNull CompletableFuture<@NotNull AudioState> getPlaybackState(int source) {
-        return executeQuick(() -> getPlaybackStateAudio(source));
+        var future = new CompletableFuture<AudioState>();
+        audioThread.post(AudioCommandBuffer.GET_STATE, this, source, future);
+        return future;
     }
 
     @CalledInAudioThread
@@ -125,18 +127,44 @@ public abstract class Audio implements AutoCloseable {
     @CalledInAudioThread
     public void stopAudio(int source) { alSourceStop(source); }
 
+    // the futures complete on the audio thread, on the tick that applies the command,
+    // or before returning when called from the audio thread
     @CalledInAnyThread
     public @NotNull CompletableFuture<@NotNull Integer> play() {
-        return executeQuick(this::playAudio);
+        var future = new CompletableFuture<Integer>();
+        audioThread.post(AudioCommandBuffer.PLAY, this, 0, future);
+        return future;
     }
 
     @CalledInAnyThread
     public @NotNull CompletableFuture<Void> pause(int source) {
-        return executeQuick(() -> pauseAudio(source));
+        var future = new CompletableFuture<Void>();
+        audioThread.post(AudioCommandBuffer.PAUSE, this, source, future);
+        return future;
     }
 
     @CalledInAnyThread
-    public @NotNull CompletableFuture<Void> stop(int source) { return executeQuick(() -> stopAudio(source)); }
+    public @NotNull CompletableFuture<Void> stop(int source) {
+        var future = new CompletableFuture<Void>();
+        audioThread.post(AudioCommandBuffer.STOP, this, source, future);
+        return future;
+    }
+
+    // fire and forget versions, these don't allocate
+    @CalledInAnyThread
+    public void postPlay() {
+        audioThread.post(AudioCommandBuffer.PLAY, this, 0, null);
+    }
+
+    @CalledInAnyThread
+    public void postPause(int source) {
+        audioThread.post(AudioCommandBuffer.PAUSE, this, source, null);
+    }
+
+    @CalledInAnyThread
+    public void postStop(int source) {
+        audioThread.post(AudioCommandBuffer.STOP, this, source, null);
+    }
 
     @CalledInAudioThread
     protected void closeAudio() {
@@ -161,9 +189,4 @@ public abstract class Audio implements AutoCloseable {
     private <T> @NotNull CompletableFuture<T> executeQuick(@NotNull Supplier<T> command) {
         return CompletableFuture.supplyAsync(command, audioThread::executeQuick);
     }
-
-    @CalledInAnyThread
-    private @NotNull CompletableFuture<Void> executeQuick(@NotNull Runnable command) {
-        return CompletableFuture.runAsync(command, audioThread::executeQuick);
-    }
 }
@@ -0,0 +1,75 @@
+package com.dah.rgb.audio;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.game.Game;
+
+// playback position of a stream, published by the thread that updates it and readable from any thread
+// without locks or allocation. this is a seqlock: the sequence is odd while a snapshot is being written,
+// and a reader retries if the sequence was odd or changed under it. publishes are a few stores apart,
+// so in practice a read finishes on the first try
+public class AudioClock {
+    private volatile long sequence;
+    private volatile long samplePosition;
+    private volatile int sampleRate;
+    private volatile double latency, timestamp;
+    private volatile boolean playing;
+
+    // samplePosition is what OpenAL reports as the read position, latency (in seconds) is how long
+    // that sample takes to reach the speakers, timestamp is the Game.getCurrentTime() of the query
+    // publishes must not run concurrently, Music serializes them with its own lock
+    @CalledInAnyThread
+    public void publish(long samplePosition, int sampleRate, double latency, double timestamp, boolean playing) {
+        var sequence = this.sequence;
+        this.sequence = sequence + 1;
+        this.samplePosition = samplePosition;
+        this.sampleRate = sampleRate;
+        this.latency = latency;
+        this.timestamp = timestamp;
+        this.playing = playing;
+        this.sequence = sequence + 2;
+    }
+
+    // audible playback time in seconds, extrapolated from the last snapshot
+    @CalledInAnyThread
+    public double read() {
+        return read(Game.getCurrentTime());
+    }
+
+    @CalledInAnyThread
+    public double read(double now) {
+        long before, position;
+        int rate;
+        double latency, timestamp;
+        boolean playing;
+        do {
+            while(((before = sequence) & 1) != 0) {
+                Thread.onSpinWait();
+            }
+            position = samplePosition;
+            rate = sampleRate;
+            latency = this.latency;
+            timestamp = this.timestamp;
+            playing = this.playing;
+        } while(sequence != before);
+
+        if(rate == 0) {
+            return 0.0;
+        }
+        var time = (double) position / rate - latency;
+        if(playing) {
+            time += (now - timestamp) * 1e-3;
+        }
+        return Math.max(0.0, time);
+    }
+
+    // Game.getCurrentTime() of the last snapshot
+    @CalledInAnyThread
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    @CalledInAnyThread
+    public boolean isPlaying() {
+        return playing;
+    }
+}
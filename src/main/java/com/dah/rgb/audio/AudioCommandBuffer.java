@@ -0,0 +1,165 @@
+package com.dah.rgb.audio;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInAudioThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.game.Game;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+
+// preallocated multi-producer/single-consumer ring of audio commands, applied by the audio thread
+// in one batch per tick. a command is a primitive record (opcode, target, id) in parallel arrays
+// plus an optional completion, so posting one without a completion allocates nothing
+// slots are sequenced the same way as MpscRingQueue
+public class AudioCommandBuffer {
+    public static final int PLAY = 0, PAUSE = 1, STOP = 2, GET_STATE = 3;
+
+    private final int capacity, mask;
+    private final @NotNull AtomicLongArray sequences;
+    private final @NotNull AtomicLong producerIndex;
+    private volatile long consumerIndex;
+    // plain arrays, published by the volatile sequence store
+    private final int[] opcodes, ids;
+    private final @Nullable Audio[] targets;
+    private final @Nullable CompletableFuture<?>[] completions;
+
+    private volatile long appliedCount;
+    private volatile int lastBatchSize, maxBatchSize;
+
+    public AudioCommandBuffer(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity <= 1? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.sequences = new AtomicLongArray(this.capacity);
+        for(int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.producerIndex = new AtomicLong();
+        this.opcodes = new int[this.capacity];
+        this.ids = new int[this.capacity];
+        this.targets = new Audio[this.capacity];
+        this.completions = new CompletableFuture<?>[this.capacity];
+    }
+
+    // returns false if the buffer is full
+    @CalledInAnyThread
+    public boolean offer(int opcode, @NotNull Audio target, int id, @Nullable CompletableFuture<?> completion) {
+        long index;
+        int slot;
+        while(true) {
+            index = producerIndex.get();
+            slot = (int) index & mask;
+            var diff = sequences.get(slot) - index;
+            if(diff == 0) {
+                if(producerIndex.compareAndSet(index, index + 1)) {
+                    break;
+                }
+            } else if(diff < 0) {
+                return false;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        opcodes[slot] = opcode;
+        ids[slot] = id;
+        targets[slot] = target;
+        completions[slot] = completion;
+        sequences.set(slot, index + 1);
+        return true;
+    }
+
+    // applies the commands posted before this call, returns how many were applied
+    // ConsumerThreadOnly
+    @CalledInAudioThread
+    public int applyAll() {
+        var end = producerIndex.get();
+        var index = consumerIndex;
+        int applied = 0;
+        while(index < end) {
+            var slot = (int) index & mask;
+            if(sequences.get(slot) != index + 1) {
+                // claimed but not written yet, picked up next tick
+                break;
+            }
+            var opcode = opcodes[slot];
+            var id = ids[slot];
+            var target = targets[slot];
+            var completion = completions[slot];
+            targets[slot] = null;
+            completions[slot] = null;
+            sequences.set(slot, index + capacity);
+            consumerIndex = ++index;
+
+            apply(opcode, target, id, completion);
+            applied++;
+        }
+        if(applied > 0) {
+            appliedCount += applied;
+            lastBatchSize = applied;
+            maxBatchSize = Math.max(maxBatchSize, applied);
+        }
+        return applied;
+    }
+
+    @CalledInAudioThread
+    @SuppressWarnings("unchecked")
+    public static void apply(int opcode, @NotNull Audio target, int id, @Nullable CompletableFuture<?> completion) {
+        try {
+            Object result = null;
+            switch(opcode) {
+                case PLAY -> result = target.playAudio();
+                case PAUSE -> target.pauseAudio(id);
+                case STOP -> target.stopAudio(id);
+                case GET_STATE -> result = target.getPlaybackStateAudio(id);
+                default -> throw new IllegalArgumentException("Unknown audio command: " + opcode);
+            }
+            if(completion != null) {
+                ((CompletableFuture<Object>) completion).complete(result);
+            }
+        } catch (RuntimeException e) {
+            if(completion != null) {
+                completion.completeExceptionally(e);
+            } else {
+                Game.logException(Level.WARNING, "Audio command " + opcode + " on " + target + " failed", e);
+            }
+        }
+    }
+
+    // claimed-but-unpublished commands count as queued
+    @CalledInAnyThread
+    public int size() {
+        var size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @CalledInAnyThread
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @CalledInAnyThread
+    public int capacity() {
+        return capacity;
+    }
+
+    @CalledInAnyThread
+    public long getAppliedCount() {
+        return appliedCount;
+    }
+
+    @CalledInAnyThread
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    @CalledInAnyThread
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+}
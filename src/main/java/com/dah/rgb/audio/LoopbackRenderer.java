@@ -0,0 +1,195 @@
+package com.dah.rgb.audio;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInAudioThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.audio.io.WavWriter;
+import com.dah.rgb.game.Game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.logging.Level;
+
+import static org.lwjgl.openal.ALC10.ALC_FREQUENCY;
+import static org.lwjgl.openal.ALC10.alcIsExtensionPresent;
+import static org.lwjgl.openal.SOFTLoopback.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+// pulls the mix of a loopback device (ALC_SOFT_loopback) block by block instead of playing it,
+// as fast as the CPU allows, and optionally streams it to a WAV file, up to a maximum length
+// the rendered frame count is the audio timeline of the device, so a play can be timed to the exact frame
+public class LoopbackRenderer implements AutoCloseable {
+    public static final int CHANNELS = 2;
+
+    private final long device;
+    private final int sampleRate, blockFrames;
+    private final @NotNull ByteBuffer block;
+    private @Nullable WavWriter writer;
+    private final long maxOutputFrames;
+    private final long startNanos;
+    private volatile long renderedFrames, renderNanos;
+
+    // onset measurement, see markOnset
+    private final int onsetThreshold;
+    private volatile long onsetMark, lastOnsetLatency;
+
+    // once maxOutputFrames were written the output is closed, rendering goes on
+    @CalledInAudioThread
+    public LoopbackRenderer(long device, int sampleRate, int blockFrames, @Nullable Path output, long maxOutputFrames,
+                            int onsetThreshold) throws IOException {
+        this.device = device;
+        this.sampleRate = sampleRate;
+        this.blockFrames = Math.max(1, blockFrames);
+        this.onsetThreshold = onsetThreshold;
+        this.maxOutputFrames = Math.max(0, maxOutputFrames);
+        this.writer = output == null? null : new WavWriter(output, CHANNELS, sampleRate);
+        block = memAlloc(this.blockFrames * CHANNELS * Short.BYTES);
+        onsetMark = lastOnsetLatency = -1;
+        startNanos = System.nanoTime();
+    }
+
+    @CalledInAudioThread
+    public static boolean isSupported() {
+        return alcIsExtensionPresent(NULL, "ALC_SOFT_loopback");
+    }
+
+    // context attributes matching the rendered format, 0 terminated
+    @CalledInAudioThread
+    public static @NotNull IntBuffer contextAttributes(@NotNull IntBuffer into, int sampleRate) {
+        return into
+                .put(ALC_FORMAT_CHANNELS_SOFT).put(ALC_STEREO_SOFT)
+                .put(ALC_FORMAT_TYPE_SOFT).put(ALC_SHORT_SOFT)
+                .put(ALC_FREQUENCY).put(sampleRate)
+                .put(0)
+                .flip();
+    }
+
+    @CalledInAudioThread
+    public static boolean isFormatSupported(long device, int sampleRate) {
+        return alcIsRenderFormatSupportedSOFT(device, sampleRate, ALC_STEREO_SOFT, ALC_SHORT_SOFT);
+    }
+
+    // renders one block, the sources advance by blockFrames
+    @CalledInAudioThread
+    public void render() {
+        var start = System.nanoTime();
+        block.clear();
+        alcRenderSamplesSOFT(device, block, blockFrames);
+        if(onsetMark >= 0) {
+            detectOnset();
+        }
+        if(writer != null) {
+            writeBlock(writer);
+        }
+        renderedFrames += blockFrames;
+        renderNanos += System.nanoTime() - start;
+    }
+
+    private void writeBlock(@NotNull WavWriter writer) {
+        var frames = (int) Math.min(blockFrames, maxOutputFrames - writer.getFrames());
+        try {
+            block.limit(frames * CHANNELS * Short.BYTES);
+            writer.write(block);
+            if(writer.getFrames() >= maxOutputFrames) {
+                Game.log(Level.WARNING, "The loopback output reached its maximum length, %.1f s, and was closed"
+                        .formatted((double) maxOutputFrames / sampleRate));
+                closeOutput();
+            }
+        } catch (IOException e) {
+            Game.logException(Level.SEVERE, "Writing the loopback output failed", e);
+            closeOutput();
+        }
+    }
+
+    private void closeOutput() {
+        var writer = this.writer;
+        this.writer = null;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            Game.logException(Level.SEVERE, "Closing the loopback output failed", e);
+        }
+    }
+
+    private void detectOnset() {
+        var address = memAddress(block);
+        var samples = blockFrames * CHANNELS;
+        for(int i = 0; i < samples; i++) {
+            if(Math.abs(memGetShort(address + (long) i * Short.BYTES)) > onsetThreshold) {
+                var frame = renderedFrames + i / CHANNELS;
+                lastOnsetLatency = Math.max(0, frame - onsetMark);
+                onsetMark = -1;
+                return;
+            }
+        }
+    }
+
+    // remembers the current frame, the next rendered frame louder than the onset threshold
+    // sets getLastOnsetLatency(), e.g. mark right before a play in silence to measure play-to-output latency
+    @CalledInAnyThread
+    public void markOnset() {
+        onsetMark = renderedFrames;
+    }
+
+    // in frames, -1 until an onset was detected
+    @CalledInAnyThread
+    public long getLastOnsetLatency() {
+        return lastOnsetLatency;
+    }
+
+    @CalledInAnyThread
+    public double getLastOnsetLatencyMillis() {
+        var latency = lastOnsetLatency;
+        return latency < 0? -1.0 : latency * 1000.0 / sampleRate;
+    }
+
+    @CalledInAnyThread
+    public long getRenderedFrames() {
+        return renderedFrames;
+    }
+
+    // the device timeline in milliseconds
+    @CalledInAnyThread
+    public double getRenderedTime() {
+        return renderedFrames * 1000.0 / sampleRate;
+    }
+
+    // rendered audio time per wall time since the renderer was created, above 1 is faster than realtime
+    @CalledInAnyThread
+    public double getRealtimeFactor() {
+        var elapsed = System.nanoTime() - startNanos;
+        return elapsed == 0? 0.0 : renderedFrames * 1e9 / sampleRate / elapsed;
+    }
+
+    // rendered audio time per time spent in render, the upper bound of the realtime factor
+    @CalledInAnyThread
+    public double getRenderSpeed() {
+        var nanos = renderNanos;
+        return nanos == 0? 0.0 : renderedFrames * 1e9 / sampleRate / nanos;
+    }
+
+    @CalledInAnyThread
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @CalledInAnyThread
+    public int getBlockFrames() {
+        return blockFrames;
+    }
+
+    @Override
+    @CalledInAudioThread
+    public void close() throws IOException {
+        try {
+            if(writer != null) {
+                writer.close();
+            }
+        } finally {
+            memFree(block);
+        }
+    }
+}
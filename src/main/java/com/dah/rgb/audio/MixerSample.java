@@ -0,0 +1,69 @@
+package com.dah.rgb.audio;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInAssetThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.audio.io.AudioSource;
+
+import static org.lwjgl.system.MemoryUtil.memAllocShort;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+// fully decoded interleaved 16-bit PCM on the heap, played by SoftwareMixer voices
+// one instance can be played by any number of voices at once
+public final class MixerSample {
+    private final short[] data;
+    private final int channels, sampleRate, frames;
+
+    public MixerSample(short[] data, int channels, int sampleRate) {
+        if(channels != 1 && channels != 2) {
+            throw new IllegalArgumentException("Only mono and stereo samples can be mixed: " + channels + " channels");
+        }
+        this.data = data;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.frames = data.length / channels;
+    }
+
+    // decodes the whole source, the source is left open
+    @CalledInAssetThread
+    public static @NotNull MixerSample decode(@NotNull AudioSource source) {
+        var channels = source.getChannels();
+        var decoded = source.getDecodedSamples();
+        if(decoded != null) {
+            var data = new short[decoded.remaining()];
+            decoded.get(decoded.position(), data);
+            return new MixerSample(data, channels, source.getSampleRate());
+        }
+
+        var pcm = memAllocShort(source.getSamplesLength() * channels);
+        try {
+            source.seek(0);
+            var frames = Math.max(0, source.getSamples(pcm));
+            var data = new short[frames * channels];
+            pcm.get(0, data);
+            return new MixerSample(data, channels, source.getSampleRate());
+        } finally {
+            memFree(pcm);
+        }
+    }
+
+    // package-private, the mixer reads it directly in its inner loops
+    short[] data() {
+        return data;
+    }
+
+    @CalledInAnyThread
+    public int getChannels() {
+        return channels;
+    }
+
+    @CalledInAnyThread
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @CalledInAnyThread
+    public int getFrames() {
+        return frames;
+    }
+}
@@ -0,0 +1,116 @@
+package com.dah.rgb.audio;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInAudioThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.game.Game;
+
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.AL11.AL_SAMPLE_OFFSET;
+import static org.lwjgl.system.MemoryUtil.memAllocShort;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+// plays the blocks of a SoftwareMixer through one streaming source, refilled like Music
+// the source only runs while the mixer has voices, then it drains and stops by itself
+public class MixerStream {
+    private final @NotNull SoftwareMixer mixer;
+    private final int source;
+    private final int[] buffers;
+    // unqueued buffers, refilled once the mixer has voices again
+    private final int[] freeBuffers;
+    private int freeCount;
+    private final @NotNull ShortBuffer pcm;
+    private final int blockFrames;
+    // the mixer had voices at the last refill, so a stopped source means it ran dry
+    private boolean refilling;
+
+    private volatile double refillTime;
+    private volatile long underrunCount;
+
+    @CalledInAudioThread
+    public MixerStream(@NotNull SoftwareMixer mixer, int bufferCount) {
+        this.mixer = mixer;
+        this.blockFrames = mixer.getBlockFrames();
+        source = alGenSources();
+        buffers = new int[Math.max(2, bufferCount)];
+        alGenBuffers(buffers);
+        freeBuffers = buffers.clone();
+        freeCount = buffers.length;
+        pcm = memAllocShort(blockFrames * 2);
+        refillTime = Double.POSITIVE_INFINITY;
+    }
+
+    // returns true if the source ran dry while the mixer still had voices
+    @CalledInAudioThread
+    public boolean update() {
+        int processed = alGetSourcei(source, AL_BUFFERS_PROCESSED);
+        for(int i = 0; i < processed; i++) {
+            freeBuffers[freeCount++] = alSourceUnqueueBuffers(source);
+        }
+
+        var stopped = alGetSourcei(source, AL_SOURCE_STATE) != AL_PLAYING;
+        var underrun = stopped && refilling;
+        if(underrun) {
+            underrunCount++;
+        }
+
+        refilling = mixer.getActiveVoices() > 0;
+        if(refilling) {
+            while(freeCount > 0) {
+                var buffer = freeBuffers[--freeCount];
+                pcm.clear();
+                mixer.mix(pcm, blockFrames);
+                pcm.flip();
+                alBufferData(buffer, AL_FORMAT_STEREO16, pcm, mixer.getSampleRate());
+                alSourceQueueBuffers(source, buffer);
+            }
+            if(stopped) {
+                alSourcePlay(source);
+            }
+        }
+        updateRefillTime();
+        return underrun;
+    }
+
+    private void updateRefillTime() {
+        if(!refilling || alGetSourcei(source, AL_SOURCE_STATE) != AL_PLAYING) {
+            refillTime = Double.POSITIVE_INFINITY;
+            return;
+        }
+        var remaining = blockFrames - alGetSourcei(source, AL_SAMPLE_OFFSET) % blockFrames;
+        refillTime = Game.getCurrentTime() + remaining * 1000.0 / mixer.getSampleRate();
+    }
+
+    // Game.getCurrentTime() by which update() should run again, infinite while the mixer is idle
+    @CalledInAnyThread
+    public double getRefillTime() {
+        return refillTime;
+    }
+
+    @CalledInAnyThread
+    public long getUnderrunCount() {
+        return underrunCount;
+    }
+
+    // frames mixed ahead of what is heard, a voice started now is heard after about this many frames
+    @CalledInAnyThread
+    public int getLatencyFrames() {
+        return blockFrames * buffers.length;
+    }
+
+    @CalledInAnyThread
+    public int getSource() {
+        return source;
+    }
+
+    @CalledInAudioThread
+    public void close() {
+        alSourceStop(source);
+        alSourcei(source, AL_BUFFER, 0);
+        alDeleteSources(source);
+        alDeleteBuffers(buffers);
+        memFree(pcm);
+    }
+}
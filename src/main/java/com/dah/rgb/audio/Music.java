@@ -3,15 +3,19 @@ package com.dah.rgb.audio;
 import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.CalledInAudioThread;
 import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
 import com.dah.rgb.audio.io.AudioSource;
+import com.dah.rgb.game.Game;
 import com.dah.rgb.threads.impl.AudioThread;
 import com.dah.rgb.utils.Config;
 import com.dah.rgb.utils.Ref;
+import com.dah.rgb.utils.concurrent.SpscShortRing;
 import org.lwjgl.system.MemoryStack;
 
 import java.nio.ShortBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.lwjgl.openal.AL10.*;
 import static org.lwjgl.openal.AL11.AL_SAMPLE_OFFSET;
@@ -24,18 +28,66 @@ import static org.lwjgl.system.MemoryUtil.memFree;
 public class Music extends Audio {
     private static final int STREAM_BUFFER_SIZE = Config.STREAM_BUFFER_SIZE.get(8 * 1024);
     private static final int STREAM_NUM_BUFFERS = Config.STREAM_NUM_BUFFERS.get(2);
+    // how many stream buffers are decoded ahead on a decoder worker, 0 decodes on the audio thread
+    public static final int STREAM_DECODE_AHEAD = Config.STREAM_DECODE_AHEAD.get(8);
+    // returned by stream() when the decoder holds the source and the ring had nothing for us
+    private static final int STARVED = -1;
+    // how soon a refill that found the decoder busy is retried, the decoder also wakes us up when it is done
+    private static final double STARVED_RETRY = 1.0;
 
     private final @NotNull ShortBuffer pcm;
     private final @NotNull AtomicBoolean loop;
     private final @NotNull AtomicInteger sampleIndex;
     private volatile int bufferOffset, audioOffset, lastOffset;
+    // Game.getCurrentTime() at which the oldest queued buffer will be played out
+    private volatile double refillTime;
+    private volatile long underrunCount;
+    private final @NotNull AudioClock clock;
+    // audio thread only, latency of the last sample offset query in seconds
+    private double lastLatency;
+
+    // decode-ahead state, the decoder fills ring and the audio thread empties it
+    // decodeLock serializes every use of the audio source, a decoder only holds it for one chunk
+    // and update() never waits for it
+    private final @NotNull ReentrantLock decodeLock;
+    private final @Nullable SpscShortRing ring;
+    private final @Nullable ShortBuffer decodePCM;
+    private final @NotNull AtomicBoolean decodeScheduled;
+    // ring data written before flushIndex was decoded before the last seek
+    private volatile long flushIndex;
+    private volatile boolean decodeEnded, closed, primed;
+    // set by seek, the buffers queued on the source still hold audio from before it
+    private volatile boolean seekPending;
+    // audio thread only, buffers unqueued but not refilled yet because the decoder was busy
+    private final int[] freeBuffers;
+    private int freeBufferCount;
+    private volatile boolean refillStarved;
+    private volatile long decodedFrames, decodeNanos, decodeStarvedCount;
 
     @CalledInAnyThread
     public Music(@NotNull AudioThread<?> audioThread, @NotNull Ref<? extends AudioSource> audioSource) {
+        this(audioThread, audioSource, STREAM_DECODE_AHEAD);
+    }
+
+    // decodeAhead is the ring depth in stream buffers
+    @CalledInAnyThread
+    public Music(@NotNull AudioThread<?> audioThread, @NotNull Ref<? extends AudioSource> audioSource, int decodeAhead) {
         super(audioThread, audioSource, STREAM_NUM_BUFFERS, 1);
         pcm = memAllocShort(STREAM_BUFFER_SIZE);
         loop = new AtomicBoolean(false);
         sampleIndex = new AtomicInteger();
+        refillTime = Double.POSITIVE_INFINITY;
+        clock = new AudioClock();
+        decodeLock = new ReentrantLock();
+        freeBuffers = new int[STREAM_NUM_BUFFERS];
+        decodeScheduled = new AtomicBoolean();
+        if(decodeAhead > 0) {
+            ring = new SpscShortRing(decodeAhead * STREAM_BUFFER_SIZE);
+            decodePCM = memAllocShort(STREAM_BUFFER_SIZE);
+        } else {
+            ring = null;
+            decodePCM = null;
+        }
     }
 
     @CalledInAnyThread
@@ -48,7 +100,7 @@ public class Music extends Audio {
     public synchronized void init() {
         super.createALObjects();
         for(int i = 0; i < STREAM_NUM_BUFFERS; i++) {
-            if(stream(buffers.get(i)) == 0) {
+            if(stream(buffers.get(i), true) == 0) {
                 break;
             }
         }
@@ -57,89 +109,307 @@ public class Music extends Audio {
             var source = sources.get(i);
             alSourceQueueBuffers(source, buffers);
         }
+        primed = true;
+        scheduleDecode();
     }
 
     @Override
     public int playAudio() {
+        applyPendingSeek();
         var source = super.playAudio();
+        publishClock();
         audioThread.addMusicToUpdateList(this);
         return source;
     }
 
+    @Override
+    public void pauseAudio(int source) {
+        super.pauseAudio(source);
+        publishClock();
+    }
+
     @Override
     public void stopAudio(int source) {
         super.stopAudio(source);
+        publishClock();
         audioThread.removeMusicFromUpdateList(this);
     }
 
+    // the audio thread only copies decoded chunks, unless the decoder fell behind
+    // if it fell behind and is decoding right now, a refill that may not wait takes what the ring has,
+    // or returns STARVED when it had nothing
     @CalledInAudioThread
-    private synchronized int stream(int buffer) {
-        int sampleCount = 0;
-
-        while(sampleCount < STREAM_BUFFER_SIZE) {
-            pcm.position(sampleCount);
-            int samplesPerChannel = audioSource.get().getSamples(pcm);
-            if(samplesPerChannel <= 0) {
-                break;
+    private synchronized int stream(int buffer, boolean mayWait) {
+        int sampleCount;
+        if(ring == null) {
+            decodeLock.lock();
+            try {
+                sampleCount = decode(pcm, 0);
+            } finally {
+                decodeLock.unlock();
             }
-
-            sampleCount += samplesPerChannel * channels;
+        } else {
+            ring.skipTo(flushIndex);
+            ring.read(pcm);
+            if(pcm.hasRemaining() && !decodeEnded) {
+                if(primed) {
+                    decodeStarvedCount++;
+                }
+                if(mayWait) {
+                    decodeLock.lock();
+                } else if(!decodeLock.tryLock()) {
+                    sampleCount = pcm.position();
+                    pcm.clear();
+                    scheduleDecode();
+                    return sampleCount == 0? STARVED : upload(buffer, sampleCount);
+                }
+                try {
+                    // the decoder may have finished a chunk (or a seek happened) while we waited
+                    ring.skipTo(flushIndex);
+                    ring.read(pcm);
+                    if(pcm.hasRemaining() && !decodeEnded) {
+                        // the ring is drained, decoding straight after it keeps the order
+                        var decoded = decode(pcm, pcm.position());
+                        pcm.position(pcm.position() + decoded);
+                        if(pcm.hasRemaining()) {
+                            decodeEnded = true;
+                        }
+                    }
+                } finally {
+                    decodeLock.unlock();
+                }
+            }
+            sampleCount = pcm.position();
+            pcm.position(0);
+            scheduleDecode();
         }
+        return upload(buffer, sampleCount);
+    }
+
+    @CalledInAudioThread
+    private int upload(int buffer, int sampleCount) {
 
         if(sampleCount > 0) {
             pcm.position(0);
             pcm.limit(sampleCount);
             alBufferData(buffer, alBufferFormat, pcm, sampleRate);
-            pcm.limit(STREAM_BUFFER_SIZE);
         }
+        pcm.clear();
 
         return sampleCount;
     }
 
+    // decodes from offset up to the limit of into, returns the number of shorts decoded
+    // CalledWithDecodeLock
+    private int decode(@NotNull ShortBuffer into, int offset) {
+        var start = System.nanoTime();
+        int sampleCount = offset;
+        while(sampleCount < into.limit()) {
+            into.position(sampleCount);
+            int samplesPerChannel = audioSource.get().getSamples(into);
+            if(samplesPerChannel <= 0) {
+                break;
+            }
+
+            sampleCount += samplesPerChannel * channels;
+        }
+        into.position(offset);
+        decodedFrames += (sampleCount - offset) / channels;
+        decodeNanos += System.nanoTime() - start;
+        return sampleCount - offset;
+    }
+
+    @CalledInAnyThread
+    private void scheduleDecode() {
+        if(ring == null || decodeEnded || closed || ring.remainingCapacity() < STREAM_BUFFER_SIZE) {
+            return;
+        }
+        if(decodeScheduled.compareAndSet(false, true)) {
+            // a busy pool is retried on the next refill
+            if(!audioThread.getDecoders().tryExecute(this::decodeAhead)) {
+                decodeScheduled.set(false);
+            }
+        }
+    }
+
+    // runs on a decoder worker until the ring is full or the stream ended
+    private void decodeAhead() {
+        try {
+            while(true) {
+                decodeLock.lock();
+                try {
+                    if(closed || decodeEnded || ring.remainingCapacity() < STREAM_BUFFER_SIZE) {
+                        return;
+                    }
+                    var decoded = decode(decodePCM, 0);
+                    if(decoded == 0) {
+                        decodeEnded = true;
+                        return;
+                    }
+                    decodePCM.limit(decoded);
+                    ring.write(decodePCM);
+                    decodePCM.clear();
+                } finally {
+                    decodeLock.unlock();
+                }
+                if(refillStarved) {
+                    audioThread.wakeUp();
+                }
+            }
+        } finally {
+            decodeScheduled.set(false);
+            if(refillStarved) {
+                audioThread.wakeUp();
+            }
+        }
+    }
+
     public synchronized boolean update() {
+        applyPendingSeek();
         for(int i = 0; i < sources.remaining(); i++) {
             var source = sources.get(i);
             int processed = alGetSourcei(source, AL_BUFFERS_PROCESSED);
 
             for (int j = 0; j < processed; j++) {
-                bufferOffset += STREAM_BUFFER_SIZE / channels;
                 int buffer = alSourceUnqueueBuffers(source);
+                // buffers can be partial, at the end of the stream or when the decoder was busy
+                bufferOffset += alGetBufferi(buffer, AL_SIZE) / (Short.BYTES * channels);
+                freeBuffers[freeBufferCount++] = buffer;
+            }
+            // every buffer ran dry before we refilled them, the source stopped by itself
+            var ranDry = processed > 0 && alGetSourcei(source, AL_BUFFERS_QUEUED) == 0;
+
+            while (freeBufferCount > 0) {
+                int buffer = freeBuffers[freeBufferCount - 1];
+                int streamed = stream(buffer, false);
+                if (streamed == STARVED) {
+                    // the rest is refilled on the next update
+                    break;
+                }
 
-                if (stream(buffer) == 0) {
+                if (streamed == 0) {
                     boolean exit = true;
 
                     if (loop.get()) {
-                        rewind();
+                        // the queued tail of the stream keeps playing, unlike a seek
+                        seekSource(0);
                         bufferOffset = audioOffset = lastOffset = 0;
-                        exit = stream(buffer) == 0;
+                        exit = stream(buffer, true) == 0;
                     }
 
                     if (exit) {
+                        // we are dropped from the update list, readers must not extrapolate past the end
+                        updateSampleIndex();
+                        clock.publish(sampleIndex.get(), sampleRate, lastLatency, Game.getCurrentTime(), false);
                         return false;
                     }
                 }
 
+                freeBufferCount--;
                 alSourceQueueBuffers(source, buffer);
             }
+            refillStarved = freeBufferCount > 0;
 
-            if (processed == STREAM_NUM_BUFFERS) {
+            if (ranDry) {
+                underrunCount++;
+                audioThread.reportUnderrun();
+            }
+            // also restarts a source that ran dry while the refill was waiting for the decoder
+            if (alGetSourcei(source, AL_SOURCE_STATE) == AL_STOPPED && alGetSourcei(source, AL_BUFFERS_QUEUED) > 0) {
                 alSourcePlay(source);
             }
         }
 
         updateSampleIndex();
+        updateRefillTime();
+        publishClock();
         return true;
     }
 
+    // the offset is counted from the start of the oldest queued buffer, so what is left of it
+    // is the time until the next buffer can be refilled
+    private void updateRefillTime() {
+        var refill = Double.POSITIVE_INFINITY;
+        var framesPerBuffer = STREAM_BUFFER_SIZE / channels;
+        for(int i = 0; i < sources.remaining(); i++) {
+            var source = sources.get(i);
+            if(alGetSourcei(source, AL_SOURCE_STATE) != AL_PLAYING) {
+                continue;
+            }
+            var remaining = framesPerBuffer - alGetSourcei(source, AL_SAMPLE_OFFSET) % framesPerBuffer;
+            refill = Math.min(refill, remaining * 1000.0 / sampleRate);
+        }
+        if(freeBufferCount > 0) {
+            refill = Math.min(refill, STARVED_RETRY);
+        }
+        refillTime = Game.getCurrentTime() + refill;
+    }
+
+    // Game.getCurrentTime() by which update() should run again, infinite while nothing plays
+    @CalledInAnyThread
+    public double getRefillTime() {
+        return refillTime;
+    }
+
+    @CalledInAnyThread
+    public long getUnderrunCount() {
+        return underrunCount;
+    }
+
+    // decoded samples (per channel) waiting in the decode-ahead ring
+    @CalledInAnyThread
+    public int getDecodeAheadSamples() {
+        return ring == null? 0 : ring.size() / channels;
+    }
+
+    // from 0 (empty) to 1 (full), always 0 without decode-ahead
+    @CalledInAnyThread
+    public double getDecodeAheadFill() {
+        return ring == null? 0.0 : (double) ring.size() / ring.capacity();
+    }
+
+    // samples (per channel) decoded per second of decoding time
+    @CalledInAnyThread
+    public double getDecodeThroughput() {
+        var nanos = decodeNanos;
+        return nanos == 0? 0.0 : decodedFrames * 1e9 / nanos;
+    }
+
+    // number of stream buffers the decode-ahead ring couldn't fill, the audio thread then decoded the rest itself
+    // or, while the decoder held the source, queued what the ring had or retried on a later update
+    @CalledInAnyThread
+    public long getDecodeStarvedCount() {
+        return decodeStarvedCount;
+    }
+
+    // the position is audible from the next audio thread update, see applyPendingSeek
     @CalledInAnyThread
     public synchronized void seek(int sampleIndex) {
+        seekSource(sampleIndex);
+        seekPending = true;
+        audioThread.wakeUp();
+    }
+
+    private synchronized void seekSource(int sampleIndex) {
         if(sampleIndex < 0) {
             sampleIndex = 0;
         } else if(sampleIndex >= sampleCount)  {
             sampleIndex = sampleCount - 1;
         }
-        audioSource.get().seek(sampleIndex);
+        decodeLock.lock();
+        try {
+            audioSource.get().seek(sampleIndex);
+            if(ring != null) {
+                flushIndex = ring.getWriteIndex();
+                decodeEnded = false;
+            }
+        } finally {
+            decodeLock.unlock();
+        }
         this.sampleIndex.set(sampleIndex);
+        // keeps the play state of the last snapshot, the next update corrects it
+        clock.publish(sampleIndex, sampleRate, 0.0, Game.getCurrentTime(), clock.isPlaying());
+        scheduleDecode();
     }
 
     @CalledInAnyThread
@@ -157,12 +427,50 @@ public class Music extends Audio {
         seek(0);
     }
 
+    // drops the buffers queued before the seek and refills them from the new position,
+    // the offsets restart from 0 with the new queue
+    @CalledInAudioThread
+    private synchronized void applyPendingSeek() {
+        if(!seekPending) {
+            return;
+        }
+        seekPending = false;
+        for(int i = 0; i < sources.remaining(); i++) {
+            var source = sources.get(i);
+            var playing = alGetSourcei(source, AL_SOURCE_STATE) == AL_PLAYING;
+            alSourceStop(source);
+            alSourcei(source, AL_BUFFER, 0);
+            bufferOffset = audioOffset = lastOffset = 0;
+            freeBufferCount = 0;
+            refillStarved = false;
+            // the ring was just flushed, waiting for the decoder here is the seek latency itself
+            for(int j = 0; j < STREAM_NUM_BUFFERS; j++) {
+                var buffer = buffers.get(j);
+                if(stream(buffer, true) == 0) {
+                    break;
+                }
+                alSourceQueueBuffers(source, buffer);
+            }
+            if(playing) {
+                alSourcePlay(source);
+            }
+        }
+        publishClock();
+    }
+
     private synchronized void updateSampleIndex() {
         audioOffset = bufferOffset + getALSampleOffset();
         sampleIndex.addAndGet(audioOffset - lastOffset);
         lastOffset = audioOffset;
     }
 
+    // publishes the position for readClock(), the sample index must be up to date
+    @CalledInAudioThread
+    private synchronized void publishClock() {
+        var playing = alGetSourcei(getSource(), AL_SOURCE_STATE) == AL_PLAYING;
+        clock.publish(sampleIndex.get(), sampleRate, lastLatency, Game.getCurrentTime(), playing);
+    }
+
     private int getALSampleOffset() {
         var source = getSource();
         if(audioThread.getALCapabilities().AL_SOFT_source_latency) {
@@ -170,9 +478,11 @@ public class Music extends Audio {
                 var data = stack.mallocLong(2);
                 alGetSourcei64vSOFT(source, AL_SAMPLE_OFFSET_LATENCY_SOFT, data);
                 var offset = data.get(0);
+                lastLatency = data.get(1) * 1e-9;
                 return (int) (offset >>> 32);
             }
         }
+        lastLatency = 0.0;
         if(audioThread.getALCCapabilities().ALC_SOFT_device_clock) {
             try(var stack = MemoryStack.stackPush()) {
                 var data = stack.mallocLong(2);
@@ -188,6 +498,18 @@ public class Music extends Audio {
         return sources.get(0);
     }
 
+    // playback time in seconds, extrapolated from the last audio thread update
+    // never blocks nor allocates, meant to be polled every frame or input event
+    @CalledInAnyThread
+    public double readClock() {
+        return clock.read();
+    }
+
+    @CalledInAnyThread
+    public @NotNull AudioClock getClock() {
+        return clock;
+    }
+
     @Override
     protected double getCurrentALTimeAudio(int source) {
         updateSampleIndex();
@@ -196,7 +518,18 @@ public class Music extends Audio {
 
     @Override
     public synchronized void close() {
+        decodeLock.lock();
+        try {
+            // a running decoder stops at its next chunk
+            closed = true;
+        } finally {
+            decodeLock.unlock();
+        }
         super.close();
         memFree(pcm);
+        if(ring != null) {
+            ring.close();
+            memFree(decodePCM);
+        }
     }
 }
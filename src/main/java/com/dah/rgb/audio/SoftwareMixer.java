@@ -0,0 +1,405 @@
+package com.dah.rgb.audio;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInAudioThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+// sums any number of PCM voices into interleaved stereo 16-bit blocks, so hit sounds and keysounds
+// don't need an OpenAL source each. MixerStream plays the blocks through a single streaming source
+// voices are primitive arrays indexed by voice, handles carry a generation like VoicePool
+// nothing is locked: play claims a free voice from a lock-free stack, fills it and pushes it to an inbox
+// that mix drains, like AudioCommandBuffer, so a play never waits for a block being mixed
+// a voice starts on an exact frame of the mixer timeline (the number of frames mixed so far)
+// the timeline is not the wall clock: it only advances while MixerStream refills, which it stops doing
+// once every voice ended, and it runs getLatencyFrames() of MixerStream ahead of what is heard.
+// a frame for playAt must be counted from getMixedFrames() read just before, not from an older reading
+// plus the time elapsed since, which would be late by however long the mixer stayed idle in between
+public class SoftwareMixer {
+    public static final int INVALID_VOICE = -1;
+    private static final int INDEX_BITS = 16;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - INDEX_BITS)) - 1;
+    private static final int NO_VOICE = -1;
+
+    private final int sampleRate, maxVoices, blockFrames;
+    private final @Nullable Runnable onWake;
+
+    // written by the thread which claimed the voice, read by mix once the voice is in the inbox
+    private final @Nullable MixerSample[] samples;
+    // source frame of the next output frame, and source frames per output frame
+    private final double[] positions, steps;
+    private final float[] leftGains, rightGains;
+    // the frame asked for, -1 for the next block
+    private final long[] requestedFrames;
+    private final int[] generations, handles;
+
+    // free voices, a stack linked through freeNext, the head packs a tag against ABA with the voice index
+    private final @NotNull AtomicLong freeHead;
+    private final int[] freeNext;
+    // voices played since the last mix, a stack linked through inboxNext, mix takes all of it at once
+    private final @NotNull AtomicInteger inboxHead;
+    private final int[] inboxNext;
+    // handle of the play each voice is busy with, INVALID_VOICE when free
+    private final @NotNull AtomicIntegerArray liveHandles;
+    // handle to stop at the next mix, compared with the voice's handle so a late stop can't hit the next play
+    private final @NotNull AtomicIntegerArray stopRequests;
+    // claimed voices, queued or playing
+    private final @NotNull AtomicInteger busyVoices;
+
+    // mix thread only
+    private final long[] startFrames;
+    private final int[] activeVoices, activePositions;
+    private int activeCount;
+    // accumulators of the block being mixed, in 16-bit units
+    private final float[] left, right;
+    private volatile long mixedFrames;
+
+    private final @NotNull AtomicLong dropCount;
+    private volatile long playCount, lateStartCount, mixNanos;
+
+    // onWake runs when the first voice of an idle mixer is queued, so the stream can be started
+    public SoftwareMixer(int sampleRate, int maxVoices, int blockFrames, @Nullable Runnable onWake) {
+        this.sampleRate = sampleRate;
+        this.maxVoices = Math.max(1, Math.min(maxVoices, INDEX_MASK + 1));
+        this.blockFrames = Math.max(1, blockFrames);
+        this.onWake = onWake;
+        samples = new MixerSample[this.maxVoices];
+        positions = new double[this.maxVoices];
+        steps = new double[this.maxVoices];
+        leftGains = new float[this.maxVoices];
+        rightGains = new float[this.maxVoices];
+        requestedFrames = new long[this.maxVoices];
+        generations = new int[this.maxVoices];
+        handles = new int[this.maxVoices];
+        freeNext = new int[this.maxVoices];
+        inboxNext = new int[this.maxVoices];
+        liveHandles = new AtomicIntegerArray(this.maxVoices);
+        stopRequests = new AtomicIntegerArray(this.maxVoices);
+        startFrames = new long[this.maxVoices];
+        activeVoices = new int[this.maxVoices];
+        activePositions = new int[this.maxVoices];
+        for(int i = 0; i < this.maxVoices; i++) {
+            freeNext[i] = i + 1 < this.maxVoices? i + 1 : NO_VOICE;
+            liveHandles.set(i, INVALID_VOICE);
+            stopRequests.set(i, INVALID_VOICE);
+            activePositions[i] = -1;
+        }
+        freeHead = new AtomicLong(pack(0, 0));
+        inboxHead = new AtomicInteger(NO_VOICE);
+        busyVoices = new AtomicInteger();
+        dropCount = new AtomicLong();
+        left = new float[this.blockFrames];
+        right = new float[this.blockFrames];
+    }
+
+    // starts with the next mixed block
+    @CalledInAnyThread
+    public int play(@NotNull MixerSample sample, float gain, float pan) {
+        return playAt(sample, gain, pan, -1);
+    }
+
+    // pan goes from -1 (left) to 1 (right), the centered side keeps its full gain
+    // frame is a frame of the mixer timeline, a frame already mixed when the next block starts
+    // plays right away and counts as late
+    // returns INVALID_VOICE if every voice is busy
+    @CalledInAnyThread
+    public int playAt(@NotNull MixerSample sample, float gain, float pan, long frame) {
+        var voice = claimVoice();
+        if(voice == NO_VOICE) {
+            dropCount.incrementAndGet();
+            return INVALID_VOICE;
+        }
+
+        // the voice is ours until it is in the inbox
+        pan = Math.max(-1.0f, Math.min(1.0f, pan));
+        var generation = (generations[voice] + 1) & GENERATION_MASK;
+        var handle = (generation << INDEX_BITS) | voice;
+        generations[voice] = generation;
+        handles[voice] = handle;
+        samples[voice] = sample;
+        positions[voice] = 0.0;
+        steps[voice] = (double) sample.getSampleRate() / sampleRate;
+        leftGains[voice] = gain * Math.min(1.0f, 1.0f - pan);
+        rightGains[voice] = gain * Math.min(1.0f, 1.0f + pan);
+        requestedFrames[voice] = Math.max(-1, frame);
+        liveHandles.set(voice, handle);
+
+        int head;
+        do {
+            head = inboxHead.get();
+            inboxNext[voice] = head;
+        } while(!inboxHead.compareAndSet(head, voice));
+
+        if(busyVoices.incrementAndGet() == 1 && onWake != null) {
+            onWake.run();
+        }
+        return handle;
+    }
+
+    private int claimVoice() {
+        while(true) {
+            var head = freeHead.get();
+            var voice = (int) head;
+            if(voice == NO_VOICE) {
+                return NO_VOICE;
+            }
+            // may be stale if the voice was taken meanwhile, the tag then fails the CAS
+            var next = freeNext[voice];
+            if(freeHead.compareAndSet(head, pack((int) (head >>> 32) + 1, next))) {
+                return voice;
+            }
+        }
+    }
+
+    // CalledInTheMixThread
+    private void freeVoice(int voice) {
+        while(true) {
+            var head = freeHead.get();
+            freeNext[voice] = (int) head;
+            if(freeHead.compareAndSet(head, pack((int) (head >>> 32) + 1, voice))) {
+                return;
+            }
+        }
+    }
+
+    private static long pack(int tag, int voice) {
+        return ((long) tag << 32) | (voice & 0xFFFFFFFFL);
+    }
+
+    // the voice stops at the next mixed block
+    @CalledInAnyThread
+    public void stop(int handle) {
+        var voice = voiceOf(handle);
+        if(voice >= 0) {
+            stopRequests.set(voice, handle);
+        }
+    }
+
+    // stops every voice playing sample at the next mixed block, after which the sample can be dropped
+    @CalledInAnyThread
+    public void stopAll(@NotNull MixerSample sample) {
+        for(int voice = 0; voice < maxVoices; voice++) {
+            // the handle is published after the sample, so reading it first makes the sample the one it plays
+            var handle = liveHandles.get(voice);
+            if(handle != INVALID_VOICE && samples[voice] == sample) {
+                stopRequests.set(voice, handle);
+            }
+        }
+    }
+
+    // mixes frames (any count) into out from its position, as interleaved stereo, and moves its position
+    // only one thread may mix
+    @CalledInAudioThread
+    public void mix(@NotNull ShortBuffer out, int frames) {
+        var start = System.nanoTime();
+        startQueuedVoices();
+        while(frames > 0) {
+            var block = Math.min(frames, blockFrames);
+            mixBlock(block);
+            var position = out.position();
+            for(int i = 0; i < block; i++) {
+                out.put(position + 2 * i, clip(left[i]));
+                out.put(position + 2 * i + 1, clip(right[i]));
+            }
+            out.position(position + 2 * block);
+            frames -= block;
+        }
+        mixNanos += System.nanoTime() - start;
+    }
+
+    // the inbox is a stack, so voices played together start in reverse order, which only changes
+    // where they sit in activeVoices
+    private void startQueuedVoices() {
+        var voice = inboxHead.getAndSet(NO_VOICE);
+        var mixed = mixedFrames;
+        while(voice != NO_VOICE) {
+            var next = inboxNext[voice];
+            var frame = requestedFrames[voice];
+            if(frame < 0) {
+                frame = mixed;
+            } else if(frame < mixed) {
+                lateStartCount++;
+                frame = mixed;
+            }
+            startFrames[voice] = frame;
+            activePositions[voice] = activeCount;
+            activeVoices[activeCount++] = voice;
+            playCount++;
+            voice = next;
+        }
+    }
+
+    private void mixBlock(int frames) {
+        Arrays.fill(left, 0, frames, 0.0f);
+        Arrays.fill(right, 0, frames, 0.0f);
+        for(int i = activeCount - 1; i >= 0; i--) {
+            var voice = activeVoices[i];
+            if(stopRequests.get(voice) == handles[voice] || !mixVoice(voice, frames)) {
+                release(voice);
+            }
+        }
+        mixedFrames += frames;
+    }
+
+    // returns false once the voice played its last frame
+    private boolean mixVoice(int voice, int frames) {
+        int offset = 0;
+        var delay = startFrames[voice] - mixedFrames;
+        if(delay > 0) {
+            if(delay >= frames) {
+                return true;
+            }
+            offset = (int) delay;
+        }
+
+        var sample = samples[voice];
+        var data = sample.data();
+        var sampleFrames = sample.getFrames();
+        var stereo = sample.getChannels() == 2;
+        var leftGain = leftGains[voice];
+        var rightGain = rightGains[voice];
+        var position = positions[voice];
+        var step = steps[voice];
+
+        if(step == 1.0) {
+            var from = (int) position;
+            var count = Math.min(frames - offset, sampleFrames - from);
+            if(stereo) {
+                for(int i = 0; i < count; i++) {
+                    var index = (from + i) << 1;
+                    left[offset + i] += data[index] * leftGain;
+                    right[offset + i] += data[index + 1] * rightGain;
+                }
+            } else {
+                for(int i = 0; i < count; i++) {
+                    float value = data[from + i];
+                    left[offset + i] += value * leftGain;
+                    right[offset + i] += value * rightGain;
+                }
+            }
+            positions[voice] = from + count;
+            return from + count < sampleFrames;
+        }
+
+        // linear interpolation between the two closest source frames
+        var last = sampleFrames - 1;
+        var i = offset;
+        if(stereo) {
+            while(i < frames && position < last) {
+                var index = (int) position;
+                var fraction = (float) (position - index);
+                var at = index << 1;
+                left[i] += (data[at] + (data[at + 2] - data[at]) * fraction) * leftGain;
+                right[i] += (data[at + 1] + (data[at + 3] - data[at + 1]) * fraction) * rightGain;
+                position += step;
+                i++;
+            }
+        } else {
+            while(i < frames && position < last) {
+                var index = (int) position;
+                var fraction = (float) (position - index);
+                var value = data[index] + (data[index + 1] - data[index]) * fraction;
+                left[i] += value * leftGain;
+                right[i] += value * rightGain;
+                position += step;
+                i++;
+            }
+        }
+        positions[voice] = position;
+        return position < last;
+    }
+
+    private static short clip(float value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, (int) value));
+    }
+
+    private void release(int voice) {
+        var position = activePositions[voice];
+        if(position < 0) {
+            return;
+        }
+        var last = activeVoices[--activeCount];
+        activeVoices[position] = last;
+        activePositions[last] = position;
+        activePositions[voice] = -1;
+        samples[voice] = null;
+        stopRequests.set(voice, INVALID_VOICE);
+        liveHandles.set(voice, INVALID_VOICE);
+        busyVoices.decrementAndGet();
+        freeVoice(voice);
+    }
+
+    private int voiceOf(int handle) {
+        if(handle < 0) {
+            return -1;
+        }
+        var voice = handle & INDEX_MASK;
+        if(voice >= maxVoices || liveHandles.get(voice) != handle) {
+            return -1;
+        }
+        return voice;
+    }
+
+    // a stopped voice still counts until the next mixed block
+    @CalledInAnyThread
+    public boolean isPlaying(int handle) {
+        return voiceOf(handle) >= 0;
+    }
+
+    @CalledInAnyThread
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @CalledInAnyThread
+    public int getMaxVoices() {
+        return maxVoices;
+    }
+
+    @CalledInAnyThread
+    public int getBlockFrames() {
+        return blockFrames;
+    }
+
+    // voices playing, waiting for their start frame or queued for the next mix
+    @CalledInAnyThread
+    public int getActiveVoices() {
+        return busyVoices.get();
+    }
+
+    // the mixer timeline, playAt frames are compared against it, it stands still while the mixer is idle
+    @CalledInAnyThread
+    public long getMixedFrames() {
+        return mixedFrames;
+    }
+
+    @CalledInAnyThread
+    public long getPlayCount() {
+        return playCount;
+    }
+
+    // plays refused because every voice was busy
+    @CalledInAnyThread
+    public long getDropCount() {
+        return dropCount.get();
+    }
+
+    // plays whose start frame had already been mixed
+    @CalledInAnyThread
+    public long getLateStartCount() {
+        return lateStartCount;
+    }
+
+    // total time spent in mix, in nanoseconds
+    @CalledInAnyThread
+    public long getMixNanos() {
+        return mixNanos;
+    }
+}
@@ -1,5 +1,6 @@
 package com.dah.rgb.audio;
 
+import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.CalledInAudioThread;
 import com.dah.rgb.annotations.NotNull;
 import com.dah.rgb.audio.io.AudioSource;
@@ -7,25 +8,93 @@ import com.dah.rgb.threads.impl.AudioThread;
 import com.dah.rgb.utils.Ref;
 import org.lwjgl.system.MemoryUtil;
 
-import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.AL10.alBufferData;
 import static org.lwjgl.system.MemoryUtil.memFree;
 
+// plays on voices of the audio thread's VoicePool instead of owning sources,
+// so the "source" of the Audio methods is a voice handle here
 public class Sound extends Audio {
-    public Sound(@NotNull AudioThread<?> audioThread, @NotNull Ref<AudioSource> audioSource, int numSources) {
-        super(audioThread, audioSource, 1, numSources);
+    private volatile float gain;
+
+    public Sound(@NotNull AudioThread<?> audioThread, @NotNull Ref<AudioSource> audioSource) {
+        super(audioThread, audioSource, 1, 0);
+        gain = 1.0f;
+    }
+
+    @CalledInAnyThread
+    public float getGain() {
+        return gain;
+    }
+
+    // applies to the next plays, also what VoicePool.StealPolicy.QUIETEST compares
+    @CalledInAnyThread
+    public void setGain(float gain) {
+        this.gain = gain;
     }
 
     @Override
     @CalledInAudioThread
     public synchronized void init() {
         super.init();
-        var pcm = MemoryUtil.memAllocShort(sampleCount);
-        audioSource.get().getSamples(pcm);
         var buffer = buffers.get(0);
-        alBufferData(buffer, alBufferFormat, pcm, sampleRate);
-        memFree(pcm);
-        for (int i = 0; i < sources.remaining(); i++) {
-            alSourcei(sources.get(i), AL_BUFFER, buffer);
+        var decoded = audioSource.get().getDecodedSamples();
+        if(decoded != null) {
+            // e.g. a mapped PCM cache file, nothing to decode
+            alBufferData(buffer, alBufferFormat, decoded, sampleRate);
+        } else {
+            var pcm = MemoryUtil.memAllocShort(sampleCount * channels);
+            try {
+                // the source may be shared with other sounds, which may be decoding it right now on another
+                // thread sharing the OpenAL context, so their seek and decode must not interleave with ours
+                var source = audioSource.get();
+                int decodedLength;
+                synchronized(source) {
+                    source.seek(0);
+                    decodedLength = source.getSamples(pcm);
+                }
+                pcm.limit(Math.max(0, decodedLength) * channels);
+                alBufferData(buffer, alBufferFormat, pcm, sampleRate);
+            } finally {
+                memFree(pcm);
+            }
         }
     }
+
+    // returns VoicePool.INVALID_VOICE when the play was dropped
+    @Override
+    @CalledInAudioThread
+    public int playAudio() {
+        return audioThread.getVoicePool().play(buffers.get(0), gain);
+    }
+
+    @Override
+    @CalledInAudioThread
+    public void pauseAudio(int voice) {
+        audioThread.getVoicePool().pause(voice);
+    }
+
+    @Override
+    @CalledInAudioThread
+    public void stopAudio(int voice) {
+        audioThread.getVoicePool().stop(voice);
+    }
+
+    @Override
+    @CalledInAudioThread
+    protected @NotNull AudioState getPlaybackStateAudio(int voice) {
+        return audioThread.getVoicePool().getState(voice);
+    }
+
+    @Override
+    @CalledInAudioThread
+    protected double getCurrentALTimeAudio(int voice) {
+        return audioThread.getVoicePool().getSecondOffset(voice);
+    }
+
+    @Override
+    @CalledInAudioThread
+    protected void closeAudio() {
+        audioThread.getVoicePool().stopAll(buffers.get(0));
+        super.closeAudio();
+    }
 }
@@ -0,0 +1,301 @@
+package com.dah.rgb.audio;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInAudioThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.game.Game;
+
+import java.util.logging.Level;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.AL11.AL_SEC_OFFSET;
+
+// OpenAL sources shared by every Sound
+// voices are handed out from a free stack in O(1), their states are refreshed once per audio tick
+// instead of being queried on every play, and when every voice is busy one is stolen
+// handles carry a generation, so a stale handle of a stolen voice can't touch the new owner
+public class VoicePool {
+    public static final int INVALID_VOICE = -1;
+    private static final int INDEX_BITS = 12;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - INDEX_BITS)) - 1;
+
+    private final int size;
+    private final int[] sources, generations, buffers;
+    private final long[] startSequences;
+    private final float[] gains;
+    private final int[] freeVoices;
+    private int freeCount;
+    // busy voices, with busyPositions for O(1) removal
+    private final int[] busyVoices, busyPositions;
+    private int busyCount;
+    private long playSequence;
+
+    // update() snapshot, only touched by the audio thread
+    private final int[] snapshotVoices, snapshotGenerations, snapshotStates;
+
+    private volatile @NotNull StealPolicy stealPolicy;
+    private volatile long playCount, stealCount, dropCount;
+
+    // generates up to maxVoices sources, fewer if the device runs out
+    @CalledInAudioThread
+    public VoicePool(int maxVoices) {
+        maxVoices = Math.max(1, Math.min(maxVoices, INDEX_MASK + 1));
+        var generated = new int[maxVoices];
+        int count = 0;
+        alGetError();
+        while(count < maxVoices) {
+            var source = alGenSources();
+            if(alGetError() != AL_NO_ERROR) {
+                Game.log(Level.INFO, "OpenAL ran out of sources, voice pool has " + count + " voices");
+                break;
+            }
+            generated[count++] = source;
+        }
+
+        size = count;
+        sources = new int[size];
+        System.arraycopy(generated, 0, sources, 0, size);
+        generations = new int[size];
+        buffers = new int[size];
+        startSequences = new long[size];
+        gains = new float[size];
+        freeVoices = new int[size];
+        busyVoices = new int[size];
+        busyPositions = new int[size];
+        snapshotVoices = new int[size];
+        snapshotGenerations = new int[size];
+        snapshotStates = new int[size];
+        for(int i = 0; i < size; i++) {
+            freeVoices[i] = size - 1 - i;
+            busyPositions[i] = -1;
+        }
+        freeCount = size;
+        stealPolicy = StealPolicy.OLDEST;
+    }
+
+    // returns a voice handle, or INVALID_VOICE if every voice is busy and stealing is disabled
+    @CalledInAudioThread
+    public synchronized int play(int buffer, float gain) {
+        int voice;
+        if(freeCount > 0) {
+            voice = freeVoices[--freeCount];
+            addBusy(voice);
+        } else {
+            voice = findVictim();
+            if(voice < 0) {
+                dropCount++;
+                return INVALID_VOICE;
+            }
+            stealCount++;
+            alSourceStop(sources[voice]);
+        }
+
+        generations[voice] = (generations[voice] + 1) & GENERATION_MASK;
+        buffers[voice] = buffer;
+        gains[voice] = gain;
+        startSequences[voice] = playSequence++;
+        var source = sources[voice];
+        alSourcei(source, AL_BUFFER, buffer);
+        alSourcef(source, AL_GAIN, gain);
+        alSourcePlay(source);
+        playCount++;
+        return handle(voice);
+    }
+
+    private int findVictim() {
+        var policy = stealPolicy;
+        if(policy == StealPolicy.NONE || busyCount == 0) {
+            return -1;
+        }
+        int victim = busyVoices[0];
+        for(int i = 1; i < busyCount; i++) {
+            var voice = busyVoices[i];
+            var better = switch(policy) {
+                case OLDEST -> startSequences[voice] < startSequences[victim];
+                case QUIETEST -> gains[voice] < gains[victim]
+                        || (gains[voice] == gains[victim] && startSequences[voice] < startSequences[victim]);
+                case NONE -> false;
+            };
+            if(better) {
+                victim = voice;
+            }
+        }
+        return victim;
+    }
+
+    // frees every voice that stopped since the last tick, with one state query per busy voice
+    @CalledInAudioThread
+    public void update() {
+        int count;
+        synchronized (this) {
+            count = busyCount;
+            for(int i = 0; i < count; i++) {
+                var voice = busyVoices[i];
+                snapshotVoices[i] = voice;
+                snapshotGenerations[i] = generations[voice];
+            }
+        }
+
+        // the driver round trips happen outside the lock, plays don't wait for them
+        for(int i = 0; i < count; i++) {
+            snapshotStates[i] = alGetSourcei(sources[snapshotVoices[i]], AL_SOURCE_STATE);
+        }
+
+        synchronized (this) {
+            for(int i = 0; i < count; i++) {
+                var voice = snapshotVoices[i];
+                var state = snapshotStates[i];
+                // a voice stolen in between has a new generation and is left alone
+                if((state == AL_STOPPED || state == AL_INITIAL) && generations[voice] == snapshotGenerations[i]
+                        && busyPositions[voice] >= 0) {
+                    release(voice);
+                }
+            }
+        }
+    }
+
+    @CalledInAudioThread
+    public synchronized void pause(int handle) {
+        var voice = voiceOf(handle);
+        if(voice >= 0) {
+            alSourcePause(sources[voice]);
+        }
+    }
+
+    @CalledInAudioThread
+    public synchronized void resume(int handle) {
+        var voice = voiceOf(handle);
+        if(voice >= 0) {
+            alSourcePlay(sources[voice]);
+        }
+    }
+
+    @CalledInAudioThread
+    public synchronized void stop(int handle) {
+        var voice = voiceOf(handle);
+        if(voice >= 0) {
+            alSourceStop(sources[voice]);
+            release(voice);
+        }
+    }
+
+    // stops and detaches every voice playing buffer, so the buffer can be deleted
+    @CalledInAudioThread
+    public synchronized void stopAll(int buffer) {
+        for(int i = busyCount - 1; i >= 0; i--) {
+            var voice = busyVoices[i];
+            if(buffers[voice] == buffer) {
+                alSourceStop(sources[voice]);
+                release(voice);
+            }
+        }
+        // free voices keep their last buffer attached too
+        for(int voice = 0; voice < size; voice++) {
+            if(buffers[voice] == buffer) {
+                alSourcei(sources[voice], AL_BUFFER, 0);
+                buffers[voice] = 0;
+            }
+        }
+    }
+
+    // a stale handle reads as stopped
+    @CalledInAudioThread
+    public synchronized @NotNull AudioState getState(int handle) {
+        var voice = voiceOf(handle);
+        if(voice < 0) {
+            return AudioState.STOPPED;
+        }
+        var state = AudioState.parseAL(alGetSourcei(sources[voice], AL_SOURCE_STATE));
+        return state == null? AudioState.STOPPED : state;
+    }
+
+    @CalledInAudioThread
+    public synchronized double getSecondOffset(int handle) {
+        var voice = voiceOf(handle);
+        return voice < 0? 0.0 : alGetSourcef(sources[voice], AL_SEC_OFFSET);
+    }
+
+    @CalledInAudioThread
+    public synchronized void close() {
+        for(int i = busyCount - 1; i >= 0; i--) {
+            alSourceStop(sources[busyVoices[i]]);
+        }
+        alDeleteSources(sources);
+        busyCount = freeCount = 0;
+    }
+
+    private void addBusy(int voice) {
+        busyPositions[voice] = busyCount;
+        busyVoices[busyCount++] = voice;
+    }
+
+    private void release(int voice) {
+        var position = busyPositions[voice];
+        if(position < 0) {
+            return;
+        }
+        var last = busyVoices[--busyCount];
+        busyVoices[position] = last;
+        busyPositions[last] = position;
+        busyPositions[voice] = -1;
+        freeVoices[freeCount++] = voice;
+    }
+
+    private int handle(int voice) {
+        return (generations[voice] << INDEX_BITS) | voice;
+    }
+
+    private int voiceOf(int handle) {
+        if(handle < 0) {
+            return -1;
+        }
+        var voice = handle & INDEX_MASK;
+        if(voice >= size || busyPositions[voice] < 0 || generations[voice] != (handle >>> INDEX_BITS)) {
+            return -1;
+        }
+        return voice;
+    }
+
+    @CalledInAnyThread
+    public int getSize() {
+        return size;
+    }
+
+    @CalledInAnyThread
+    public synchronized int getBusyVoices() {
+        return busyCount;
+    }
+
+    @CalledInAnyThread
+    public @NotNull StealPolicy getStealPolicy() {
+        return stealPolicy;
+    }
+
+    @CalledInAnyThread
+    public void setStealPolicy(@NotNull StealPolicy stealPolicy) {
+        this.stealPolicy = stealPolicy;
+    }
+
+    @CalledInAnyThread
+    public long getPlayCount() {
+        return playCount;
+    }
+
+    @CalledInAnyThread
+    public long getStealCount() {
+        return stealCount;
+    }
+
+    @CalledInAnyThread
+    public long getDropCount() {
+        return dropCount;
+    }
+
+    public enum StealPolicy {
+        OLDEST,
+        QUIETEST,
+        // drop the new play instead
+        NONE
+    }
+}
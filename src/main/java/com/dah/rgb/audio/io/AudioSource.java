@@ -4,8 +4,11 @@ import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.CalledInAssetThread;
 import com.dah.rgb.annotations.CalledInAudioThread;
 import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.utils.MappedFiles;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.ShortBuffer;
 import java.nio.file.Path;
 
@@ -22,6 +25,18 @@ public interface AudioSource extends AutoCloseable {
     @CalledInAnyThread
     int getSamplesLength();
 
+    // native memory held by this source, used to weigh it in the asset cache
+    @CalledInAnyThread
+    default long getMemoryFootprint() {
+        return 0;
+    }
+
+    // the whole stream as interleaved 16-bit PCM if it is already decoded, null otherwise
+    @CalledInAnyThread
+    default @Nullable ShortBuffer getDecodedSamples() {
+        return null;
+    }
+
     @CalledInAudioThread
     int getSamples(@NotNull ShortBuffer pcm);
 
@@ -31,8 +46,21 @@ public interface AudioSource extends AutoCloseable {
     @CalledInAnyThread
     void close();
 
+    // maps the file and decodes from memory, without going through stdio
     @CalledInAssetThread
     static AudioSource loadVorbisSTB(@NotNull Path path) throws IOException {
+        return loadVorbisSTB(MappedFiles.mapReadOnly(path), path.toString());
+    }
+
+    // the buffer can be shared by many sources (e.g. previews of one song) and must outlive all of them
+    @CalledInAssetThread
+    static AudioSource loadVorbisSTB(@NotNull ByteBuffer encoded, @NotNull String name) throws IOException {
+        return new VorbisAudioSource(encoded, name);
+    }
+
+    // decodes through stdio, keeping the file open for the life of the source
+    @CalledInAssetThread
+    static AudioSource loadVorbisSTBFromFile(@NotNull Path path) throws IOException {
         return new VorbisAudioSource(path);
     }
 }
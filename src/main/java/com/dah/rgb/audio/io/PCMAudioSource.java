@@ -0,0 +1,91 @@
+package com.dah.rgb.audio.io;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInAudioThread;
+import com.dah.rgb.annotations.NotNull;
+
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.openal.AL10.AL_FORMAT_MONO16;
+import static org.lwjgl.openal.AL10.AL_FORMAT_STEREO16;
+import static org.lwjgl.system.MemoryUtil.*;
+
+// already decoded, interleaved 16-bit PCM, either owned native memory or a mapped cache file
+public class PCMAudioSource implements AudioSource {
+    private final int channels, sampleRate, samplesLength;
+    private final @NotNull ShortBuffer samples;
+    private final boolean owned;
+    private volatile int sampleIndex;
+
+    PCMAudioSource(int channels, int sampleRate, @NotNull ShortBuffer samples, boolean owned) {
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.samplesLength = samples.remaining() / channels;
+        this.samples = samples;
+        this.owned = owned;
+    }
+
+    @Override
+    @CalledInAnyThread
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    @CalledInAnyThread
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    @CalledInAnyThread
+    public int getALBufferFormat() {
+        return channels == 1? AL_FORMAT_MONO16 : AL_FORMAT_STEREO16;
+    }
+
+    @Override
+    @CalledInAnyThread
+    public int getSamplesLength() {
+        return samplesLength;
+    }
+
+    @Override
+    @CalledInAnyThread
+    public long getMemoryFootprint() {
+        return owned? (long) samples.capacity() * Short.BYTES : 0;
+    }
+
+    @Override
+    @CalledInAnyThread
+    public @NotNull ShortBuffer getDecodedSamples() {
+        return samples.duplicate();
+    }
+
+    // same contract as stb_vorbis_get_samples_short_interleaved: fills from pcm's position without moving it
+    @Override
+    @CalledInAudioThread
+    public int getSamples(@NotNull ShortBuffer pcm) {
+        var index = sampleIndex;
+        var count = Math.min(pcm.remaining() / channels, samplesLength - index);
+        if(count <= 0) {
+            return 0;
+        }
+        memCopy(memAddress(samples) + (long) index * channels * Short.BYTES, memAddress(pcm), (long) count * channels * Short.BYTES);
+        sampleIndex = index + count;
+        return count;
+    }
+
+    @Override
+    @CalledInAnyThread
+    public void seek(int sampleIndex) {
+        this.sampleIndex = Math.max(0, Math.min(sampleIndex, samplesLength));
+    }
+
+    @Override
+    @CalledInAnyThread
+    public void close() {
+        if(owned) {
+            memFree(samples);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.dah.rgb.audio.io;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInAssetThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.game.Game;
+import com.dah.rgb.utils.MappedFiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+// on-disk cache of fully decoded audio, so sounds are mapped straight into alBufferData on later runs
+// file layout (little endian header, native endian samples):
+//   int magic, int version, int byteOrder, int channels, int sampleRate, int reserved,
+//   long sourceSize, long sourceModifiedTime, long dataBytes, then dataBytes of interleaved 16-bit PCM
+public class PCMCache {
+    private static final int MAGIC = 0x50424752; // "RGBP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int NATIVE_BYTE_ORDER = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN? 1 : 2;
+
+    private final @NotNull Path directory;
+    private final @NotNull AtomicLong hitCount, missCount;
+
+    public PCMCache(@NotNull Path directory) {
+        this.directory = directory;
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+    }
+
+    // the cache is invalidated when the size or modification time of the source changes
+    @CalledInAssetThread
+    public @NotNull AudioSource loadVorbis(@NotNull Path source) throws IOException {
+        var attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        var sourceSize = attributes.size();
+        var sourceModifiedTime = attributes.lastModifiedTime().toMillis();
+        var cacheFile = getCacheFile(source);
+
+        if(Files.isRegularFile(cacheFile)) {
+            var cached = tryMap(cacheFile, sourceSize, sourceModifiedTime);
+            if(cached != null) {
+                hitCount.incrementAndGet();
+                return cached;
+            }
+        }
+
+        missCount.incrementAndGet();
+        var decoded = decode(source);
+        try {
+            write(cacheFile, decoded, sourceSize, sourceModifiedTime);
+        } catch (IOException e) {
+            // still usable, only the next launch has to decode again
+            Game.logException(Level.WARNING, "Unable to write PCM cache file '" + cacheFile + "'", e);
+        }
+        return decoded;
+    }
+
+    private @Nullable PCMAudioSource tryMap(@NotNull Path cacheFile, long sourceSize, long sourceModifiedTime) throws IOException {
+        var mapped = MappedFiles.mapReadOnly(cacheFile).order(ByteOrder.LITTLE_ENDIAN);
+        if(mapped.capacity() < HEADER_SIZE
+                || mapped.getInt(0) != MAGIC
+                || mapped.getInt(4) != VERSION
+                || mapped.getInt(8) != NATIVE_BYTE_ORDER
+                || mapped.getLong(24) != sourceSize
+                || mapped.getLong(32) != sourceModifiedTime
+                || mapped.getLong(40) != mapped.capacity() - HEADER_SIZE) {
+            return null;
+        }
+        var channels = mapped.getInt(12);
+        var sampleRate = mapped.getInt(16);
+        if(channels <= 0) {
+            return null;
+        }
+        var samples = mapped.position(HEADER_SIZE).slice().order(ByteOrder.nativeOrder()).asShortBuffer();
+        return new PCMAudioSource(channels, sampleRate, samples, false);
+    }
+
+    private static @NotNull PCMAudioSource decode(@NotNull Path source) throws IOException {
+        try(var decoder = AudioSource.loadVorbisSTB(source)) {
+            var channels = decoder.getChannels();
+            var samples = memAllocShort(decoder.getSamplesLength() * channels);
+            var decodedLength = decoder.getSamples(samples);
+            samples.limit(Math.max(0, decodedLength) * channels);
+            return new PCMAudioSource(channels, decoder.getSampleRate(), samples, true);
+        }
+    }
+
+    private void write(@NotNull Path cacheFile, @NotNull PCMAudioSource decoded, long sourceSize, long sourceModifiedTime) throws IOException {
+        Files.createDirectories(directory);
+        var samples = decoded.getDecodedSamples();
+        var data = memByteBuffer(memAddress(samples), samples.remaining() * Short.BYTES);
+        var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(NATIVE_BYTE_ORDER)
+                .putInt(decoded.getChannels())
+                .putInt(decoded.getSampleRate())
+                .putInt(0)
+                .putLong(sourceSize)
+                .putLong(sourceModifiedTime)
+                .putLong(data.remaining())
+                .flip();
+
+        // written next to the real file and moved over it, so readers never see half a file
+        var temp = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try(var channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while(header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while(data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @CalledInAnyThread
+    public @NotNull Path getCacheFile(@NotNull Path source) {
+        var absolute = source.toAbsolutePath().normalize();
+        try {
+            var digest = MessageDigest.getInstance("SHA-1").digest(absolute.toString().getBytes(StandardCharsets.UTF_8));
+            var hash = HexFormat.of().formatHex(digest, 0, 8);
+            return directory.resolve(absolute.getFileName() + "-" + hash + ".pcm");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-1 is required to be supported", e);
+        }
+    }
+
+    @CalledInAnyThread
+    public @NotNull Path getDirectory() {
+        return directory;
+    }
+
+    @CalledInAnyThread
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @CalledInAnyThread
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
@@ -4,10 +4,13 @@ import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.CalledInAssetThread;
 import com.dah.rgb.annotations.CalledInAudioThread;
 import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
 import org.lwjgl.stb.STBVorbisInfo;
 import org.lwjgl.system.MemoryStack;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.ShortBuffer;
 import java.nio.file.Path;
 
@@ -19,10 +22,13 @@ import static org.lwjgl.system.MemoryUtil.NULL;
 public class VorbisAudioSource implements AudioSource {
     private final long decoder;
     private final @NotNull STBVorbisInfo info;
+    // decoders opened from memory read from this buffer for their whole lifetime
+    private final @Nullable ByteBuffer encoded;
 
     @CalledInAssetThread
     VorbisAudioSource(@NotNull Path path) throws IOException {
         info = STBVorbisInfo.malloc();
+        encoded = null;
         try(var stack = MemoryStack.stackPush()) {
             var error = stack.mallocInt(1);
 
@@ -36,6 +42,25 @@ public class VorbisAudioSource implements AudioSource {
         }
     }
 
+    // encoded must be a direct buffer, several sources can decode from the same buffer at once
+    @CalledInAssetThread
+    VorbisAudioSource(@NotNull ByteBuffer encoded, @NotNull String name) throws IOException {
+        info = STBVorbisInfo.malloc();
+        this.encoded = encoded;
+        try(var stack = MemoryStack.stackPush()) {
+            var error = stack.mallocInt(1);
+
+            decoder = stb_vorbis_open_memory(encoded, error, null);
+
+            if(decoder == NULL) {
+                info.free();
+                throw new IOException("Loading audio '%s' failed, stb_vorbis error %d".formatted(name, error.get(0)));
+            }
+
+            stb_vorbis_get_info(decoder, info);
+        }
+    }
+
     @Override
     @CalledInAnyThread
     public int getChannels() {
@@ -60,6 +85,17 @@ public class VorbisAudioSource implements AudioSource {
         return stb_vorbis_stream_length_in_samples(decoder);
     }
 
+    @Override
+    @CalledInAnyThread
+    public long getMemoryFootprint() {
+        var footprint = (long) info.setup_memory_required() + info.temp_memory_required();
+        // mapped files live in the page cache and are not counted
+        if(encoded != null && !(encoded instanceof MappedByteBuffer)) {
+            footprint += encoded.capacity();
+        }
+        return footprint;
+    }
+
     @Override
     @CalledInAudioThread
     public int getSamples(@NotNull ShortBuffer pcm) {
@@ -0,0 +1,97 @@
+package com.dah.rgb.audio.io;
+
+import com.dah.rgb.annotations.CalledInAudioThread;
+import com.dah.rgb.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// streams 16-bit PCM into a WAV file, the rendered buffers go straight to the FileChannel
+// (a direct buffer is written without a copy on the heap), sizes are patched into the header on close
+// a file bigger than 4 GiB keeps 0xFFFFFFFF sizes, which most readers take as "until the end"
+public class WavWriter implements AutoCloseable {
+    private static final int HEADER_SIZE = 44;
+    private static final long MAX_CHUNK_SIZE = 0xFFFFFFFFL;
+
+    private final @NotNull FileChannel channel;
+    private final int channels, sampleRate;
+    private long dataBytes;
+
+    @CalledInAudioThread
+    public WavWriter(@NotNull Path file, int channels, int sampleRate) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        try {
+            writeFully(header(0), 0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private @NotNull ByteBuffer header(long dataBytes) {
+        var blockAlign = channels * Short.BYTES;
+        var data = Math.min(dataBytes, MAX_CHUNK_SIZE);
+        var riff = Math.min(dataBytes + HEADER_SIZE - 8, MAX_CHUNK_SIZE);
+        return ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(0x46464952) // "RIFF"
+                .putInt((int) riff)
+                .putInt(0x45564157) // "WAVE"
+                .putInt(0x20746d66) // "fmt "
+                .putInt(16)
+                .putShort((short) 1) // PCM
+                .putShort((short) channels)
+                .putInt(sampleRate)
+                .putInt(sampleRate * blockAlign)
+                .putShort((short) blockAlign)
+                .putShort((short) 16)
+                .putInt(0x61746164) // "data"
+                .putInt((int) data)
+                .flip();
+    }
+
+    // writes the remaining bytes of pcm (native endian 16-bit samples) and moves its position
+    @CalledInAudioThread
+    public void write(@NotNull ByteBuffer pcm) throws IOException {
+        if(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN) {
+            // WAV is little endian
+            for(int i = pcm.position(); i + 1 < pcm.limit(); i += 2) {
+                pcm.putShort(i, Short.reverseBytes(pcm.getShort(i)));
+            }
+        }
+        var written = pcm.remaining();
+        writeFully(pcm, HEADER_SIZE + dataBytes);
+        dataBytes += written;
+    }
+
+    private void writeFully(@NotNull ByteBuffer data, long position) throws IOException {
+        while(data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    @CalledInAudioThread
+    public long getDataBytes() {
+        return dataBytes;
+    }
+
+    @CalledInAudioThread
+    public long getFrames() {
+        return dataBytes / ((long) channels * Short.BYTES);
+    }
+
+    @Override
+    @CalledInAudioThread
+    public void close() throws IOException {
+        try {
+            writeFully(header(dataBytes), 0);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -4,13 +4,16 @@ import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.CalledInGraphicsThread;
 import com.dah.rgb.annotations.CalledInMainThread;
 import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.input.InputEvent;
 import com.dah.rgb.threads.impl.GraphicsThread;
 import com.dah.rgb.utils.Dimension;
 import org.joml.Vector2f;
 import org.lwjgl.glfw.Callbacks;
+import org.lwjgl.glfw.GLFWGamepadState;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GLCapabilities;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
@@ -26,10 +29,22 @@ public abstract class GLFWGame<SELF extends GLFWGame<SELF>> extends Game<SELF> {
     protected boolean glfwInit;
     protected long window;
 
+    // gamepads have no callbacks, their state is diffed against the previous poll, see pollGamepads
+    private final boolean[] gamepadConnected;
+    private final byte[][] gamepadButtons;
+    private final float[][] gamepadAxes;
+    private GLFWGamepadState gamepadState;
+    // the last cursor position the queue turned away, offered again on the next poll unless a newer one got in
+    private boolean cursorPending;
+    private double pendingCursorX, pendingCursorY, pendingCursorTime;
+
     public GLFWGame(int width, int height, @NotNull String title) {
         this.framebufferSize = new AtomicReference<>(new Dimension(width, height));
         this.contextScale = new AtomicReference<>(new Vector2f(1.0f));
         this.title = title;
+        this.gamepadConnected = new boolean[GLFW_JOYSTICK_LAST + 1];
+        this.gamepadButtons = new byte[GLFW_JOYSTICK_LAST + 1][GLFW_GAMEPAD_BUTTON_LAST + 1];
+        this.gamepadAxes = new float[GLFW_JOYSTICK_LAST + 1][GLFW_GAMEPAD_AXIS_LAST + 1];
     }
 
     @Override
@@ -54,20 +69,119 @@ public abstract class GLFWGame<SELF extends GLFWGame<SELF>> extends Game<SELF> {
         glfwSetWindowCloseCallback(window, w -> running.set(false));
         glfwSetFramebufferSizeCallback(window, (w, width, height) -> framebufferSize.set(new Dimension(width, height)));
         glfwSetWindowContentScaleCallback(window, (w, xscale, yscale) -> contextScale.set(new Vector2f(xscale, yscale)));
+        initInput();
 
         return true;
     }
 
+    // input callbacks stamp the events as soon as GLFW delivers them
+    @CalledInMainThread
+    protected void initInput() {
+        glfwSetKeyCallback(window, (w, key, scancode, action, mods) ->
+                inputEvents.offer(InputEvent.KEY, scancode, key, action, mods, 0.0, 0.0, getCurrentTime()));
+        glfwSetCharCallback(window, (w, codepoint) ->
+                inputEvents.offer(InputEvent.CHAR, 0, codepoint, 0, 0, 0.0, 0.0, getCurrentTime()));
+        glfwSetMouseButtonCallback(window, (w, button, action, mods) ->
+                inputEvents.offer(InputEvent.MOUSE_BUTTON, 0, button, action, mods, 0.0, 0.0, getCurrentTime()));
+        glfwSetCursorPosCallback(window, (w, x, y) -> offerCursor(x, y, getCurrentTime()));
+        glfwSetScrollCallback(window, (w, x, y) ->
+                inputEvents.offer(InputEvent.SCROLL, 0, 0, 0, 0, x, y, getCurrentTime()));
+
+        gamepadState = GLFWGamepadState.calloc();
+        for(int jid = GLFW_JOYSTICK_1; jid <= GLFW_JOYSTICK_LAST; jid++) {
+            gamepadConnected[jid] = glfwJoystickIsGamepad(jid);
+        }
+        glfwSetJoystickCallback((jid, event) -> {
+            gamepadConnected[jid] = event == GLFW_CONNECTED && glfwJoystickIsGamepad(jid);
+            if(!gamepadConnected[jid]) {
+                // a reconnected gamepad starts released and centered
+                Arrays.fill(gamepadButtons[jid], (byte) GLFW_RELEASE);
+                Arrays.fill(gamepadAxes[jid], 0.0f);
+            }
+        });
+    }
+
+    @CalledInMainThread
+    private void offerCursor(double x, double y, double time) {
+        cursorPending = !inputEvents.offer(InputEvent.CURSOR, 0, 0, 0, 0, x, y, time);
+        if(cursorPending) {
+            pendingCursorX = x;
+            pendingCursorY = y;
+            pendingCursorTime = time;
+        }
+    }
+
+    // so the consumers end up with the latest position even if no other movement comes
+    @CalledInMainThread
+    private void offerPendingCursor() {
+        if(cursorPending) {
+            offerCursor(pendingCursorX, pendingCursorY, pendingCursorTime);
+        }
+    }
+
+    // emits an event for every gamepad button and axis that changed since the last poll,
+    // stamped with the poll time, so the poll rate bounds their precision
+    // an axis the queue turned away keeps its previous value here, so the next poll offers it again
+    @CalledInMainThread
+    protected void pollGamepads() {
+        if(gamepadState == null) {
+            return;
+        }
+        var time = getCurrentTime();
+        for(int jid = GLFW_JOYSTICK_1; jid <= GLFW_JOYSTICK_LAST; jid++) {
+            if(!gamepadConnected[jid] || !glfwGetGamepadState(jid, gamepadState)) {
+                continue;
+            }
+            var buttons = gamepadButtons[jid];
+            for(int button = 0; button < buttons.length; button++) {
+                var action = gamepadState.buttons(button);
+                if(action != buttons[button]) {
+                    buttons[button] = action;
+                    inputEvents.offer(InputEvent.GAMEPAD_BUTTON, jid, button, action, 0, 0.0, 0.0, time);
+                }
+            }
+            var axes = gamepadAxes[jid];
+            for(int axis = 0; axis < axes.length; axis++) {
+                var value = gamepadState.axes(axis);
+                if(value != axes[axis] && inputEvents.offer(InputEvent.GAMEPAD_AXIS, jid, axis, 0, 0, value, 0.0, time)) {
+                    axes[axis] = value;
+                }
+            }
+        }
+    }
+
     @Override
     @CalledInMainThread
     protected void pollEvents() {
         glfwWaitEventsTimeout(1e-3);
+        offerPendingCursor();
+        pollGamepads();
+    }
+
+    @Override
+    @CalledInMainThread
+    protected void waitEvents(double timeout) {
+        if(timeout > 0.0) {
+            glfwWaitEventsTimeout(timeout * 1e-3);
+        } else {
+            glfwPollEvents();
+        }
+        offerPendingCursor();
+        pollGamepads();
     }
 
     @Override
     @CalledInMainThread
     public void close() {
         super.close();
+        if(gamepadState != null) {
+            var joystickCallback = glfwSetJoystickCallback(null);
+            if(joystickCallback != null) {
+                joystickCallback.free();
+            }
+            gamepadState.free();
+            gamepadState = null;
+        }
         if(window != NULL) {
             Callbacks.glfwFreeCallbacks(window);
             glfwDestroyWindow(window);
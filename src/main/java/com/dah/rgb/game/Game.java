@@ -1,18 +1,24 @@
 package com.dah.rgb.game;
 
 import com.dah.rgb.annotations.*;
+import com.dah.rgb.input.InputEventQueue;
 import com.dah.rgb.scenes.SceneManager;
 import com.dah.rgb.threads.impl.AssetThread;
 import com.dah.rgb.threads.impl.AudioThread;
 import com.dah.rgb.threads.impl.GraphicsThread;
 import com.dah.rgb.utils.Config;
+import com.dah.rgb.utils.logging.AsyncLogger;
 import com.dah.rgb.utils.logging.LWJGLLogStream;
+import com.dah.rgb.utils.timers.ThreadTimings;
 import com.dah.rgb.utils.timers.Timer;
+import com.dah.rgb.utils.tracing.Tracing;
 import org.lwjgl.opengl.GLCapabilities;
 import org.lwjgl.system.Configuration;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,10 +26,40 @@ public abstract class Game<SELF extends Game<SELF>> implements AutoCloseable {
     public static final boolean
             LWJGL_DEBUG = Config.LWJGL_DEBUG.get(true),
             LOG_LWJGL_MESSAGE = Config.LOG_LWJGL_MESSAGE.get(true);
+    // updates per second, 0 updates once per loop with a variable delta like before
+    public static final double TICK_RATE = Config.TICK_RATE.get(0.0);
+    // ticks caught up in one loop at most, the rest of the backlog is dropped
+    public static final int MAX_TICKS_PER_FRAME = Config.MAX_TICKS_PER_FRAME.get(5);
+    public static final boolean LOW_POWER = Config.LOW_POWER.get(false);
+    public static final int INPUT_QUEUE_CAPACITY = Config.INPUT_QUEUE_CAPACITY.get(1024);
+    // moves updates to their own thread and keeps the main thread pumping input, see loop()
+    public static final boolean INPUT_THREAD = Config.INPUT_THREAD.get(false);
+    // milliseconds between two polls of the input thread, gamepad events are stamped this precisely
+    public static final double INPUT_POLL_INTERVAL = 1000.0 / Config.INPUT_POLL_RATE.get(1000.0);
+    private static final long VARIABLE_UPDATE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
     public static final Logger LOGGER = Logger.getLogger("rstg");
+    // see AsyncLogger, off makes every log call publish on the calling thread
+    public static final boolean LOG_ASYNC = Config.LOG_ASYNC.get(true);
+    public static final @Nullable AsyncLogger ASYNC_LOGGER = LOG_ASYNC? new AsyncLogger(LOGGER,
+            Config.LOG_QUEUE_CAPACITY.get(4096), Level.parse(Config.LOG_CALLER_LEVEL.get("WARNING")),
+            (long) (Config.LOG_FLUSH_INTERVAL.get(10.0) * 1e6)) : null;
+
+    static {
+        if(ASYNC_LOGGER != null) {
+            AsyncLogger.batchConsoleOutput(LOGGER);
+        }
+    }
     public static final Timer GLOBAL_TIMER = Game::getCurrentTime;
     protected final @NotNull AtomicBoolean running;
-    protected final @NotNull AtomicReference<Double> deltaTime;
+    protected final @NotNull ThreadTimings timings;
+    protected final @NotNull InputEventQueue inputEvents;
+
+    // fixed timestep state, in milliseconds
+    private volatile double tickLength;
+    private volatile boolean lowPower;
+    // Game.getCurrentTime() the last tick's state stands for, the accumulator is how far we are past it
+    private volatile double tickBaseTime;
+    private volatile long tickCount, droppedTicks;
 
     protected @NotNull AudioThread<SELF> audioThread;
     protected @NotNull AssetThread<SELF> assetThread;
@@ -41,7 +77,10 @@ public abstract class Game<SELF extends Game<SELF>> implements AutoCloseable {
             Configuration.DEBUG_STREAM.set(new LWJGLLogStream());
         }
         running = new AtomicBoolean(true);
-        deltaTime = new AtomicReference<>();
+        timings = new ThreadTimings("MainThread");
+        inputEvents = new InputEventQueue(INPUT_QUEUE_CAPACITY);
+        tickLength = TICK_RATE > 0? 1000.0 / TICK_RATE : 0.0;
+        lowPower = LOW_POWER;
 
         audioThread = createAudioThread();
         assetThread = createAssetThread();
@@ -94,15 +133,112 @@ public abstract class Game<SELF extends Game<SELF>> implements AutoCloseable {
     @CalledInMainThread
     protected abstract void pollEvents();
 
+    // one iteration of the dedicated input thread, waits for input for at most interval milliseconds
+    // and polls the devices that have no events (gamepads)
+    @CalledInMainThread
+    protected void pumpInput(double interval) {
+        waitEvents(interval);
+    }
+
+    // waits for input until timeout (milliseconds) passes and handles what came in
+    // only has to return early on input, the fixed timestep loop waits again if it is woken early
+    @CalledInMainThread
+    protected void waitEvents(double timeout) {
+        LockSupport.parkNanos((long) (timeout * 1e6));
+        pollEvents();
+    }
+
     @CalledInMainThread
     public void loop() {
-        var last = Game.getCurrentTime();
+        if(!INPUT_THREAD) {
+            runUpdates(true);
+            return;
+        }
+        // the main thread only pumps input from here, so events are stamped as soon as they arrive
+        // instead of waiting for an update to finish
+        var updater = new Thread(() -> {
+            try {
+                runUpdates(false);
+            } catch (Throwable t) {
+                Game.logException(Level.SEVERE, "The update thread crashed, stopping the game.", t);
+                running.set(false);
+            }
+        }, "UpdateThread");
+        updater.start();
+        while(running.get()) {
+            pumpInput(INPUT_POLL_INTERVAL);
+        }
+        try {
+            updater.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Game.logException(Level.INFO, "Main thread got interrupted while waiting for the update thread to finish.", e);
+        }
+    }
+
+    // handleEvents is false when a dedicated input thread pumps events, the loop then only sleeps between updates
+    @CalledInUpdateThread
+    private void runUpdates(boolean handleEvents) {
+        var spans = Tracing.currentBuffer();
+        var last = System.nanoTime();
+        double accumulator = 0.0;
+        var previous = Game.getCurrentTime();
         while (running.get()) {
+            var nanos = System.nanoTime();
+            timings.recordLoop(nanos - last);
+            last = nanos;
+
+            var tick = tickLength;
+            if(tick <= 0.0) {
+                var span = spans.begin();
+                var idleStart = System.nanoTime();
+                if(handleEvents) {
+                    pollEvents();
+                } else {
+                    LockSupport.parkNanos(VARIABLE_UPDATE_PARK_NANOS);
+                }
+                timings.recordIdle(System.nanoTime() - idleStart);
+                spans.end(span, "events");
+                span = spans.begin();
+                update();
+                spans.end(span, "update");
+                previous = Game.getCurrentTime();
+                continue;
+            }
+
             var now = Game.getCurrentTime();
-            deltaTime.set(now - last);
-            last = now;
-            pollEvents();
-            update();
+            accumulator += now - previous;
+            previous = now;
+            int ticks = 0;
+            while(accumulator >= tick && ticks < MAX_TICKS_PER_FRAME) {
+                var span = spans.begin();
+                update();
+                spans.end(span, "tick");
+                accumulator -= tick;
+                tickCount++;
+                ticks++;
+            }
+            if(accumulator >= tick) {
+                // spiral of death: updates are slower than real time, drop the backlog instead of chasing it
+                var dropped = (long) (accumulator / tick);
+                droppedTicks += dropped;
+                accumulator -= dropped * tick;
+            }
+            tickBaseTime = now - accumulator;
+
+            var untilNextTick = tick - accumulator;
+            var span = spans.begin();
+            // the event callbacks run inside the wait, they are counted as idle too, they are short next to it
+            var idleStart = System.nanoTime();
+            if(!handleEvents) {
+                LockSupport.parkNanos((long) (untilNextTick * 1e6));
+            } else if(lowPower) {
+                waitEvents(untilNextTick);
+            } else {
+                pollEvents();
+            }
+            timings.recordIdle(System.nanoTime() - idleStart);
+            spans.end(span, "events");
         }
     }
 
@@ -124,6 +260,7 @@ public abstract class Game<SELF extends Game<SELF>> implements AutoCloseable {
         audioThread.join();
         assetThread.join();
         graphicsThread.join();
+        flushLog();
     }
 
     @CalledInAnyThread
@@ -139,23 +276,38 @@ public abstract class Game<SELF extends Game<SELF>> implements AutoCloseable {
 
     @CalledInAnyThread
     public static void log(@NotNull Level level, @NotNull String msg, int skip) {
-        StackWalker.getInstance()
-                .walk(frames -> frames.skip(skip).findFirst())
-                .ifPresentOrElse(frame -> LOGGER.logp(level, frame.getClassName(), frame.getMethodName(), msg),
-                                () -> LOGGER.log(level, msg));
+        logException(level, msg, null, skip + 1);
     }
 
     @CalledInAnyThread
-    public static void logException(@NotNull Level level, @NotNull String msg, @NotNull Throwable ex, int skip) {
+    public static void logException(@NotNull Level level, @NotNull String msg, @Nullable Throwable ex, int skip) {
+        if(ASYNC_LOGGER != null) {
+            ASYNC_LOGGER.log(level, msg, ex, skip);
+            return;
+        }
+        if(!LOGGER.isLoggable(level)) {
+            return;
+        }
         StackWalker.getInstance()
                 .walk(frames -> frames.skip(skip).findFirst())
                 .ifPresentOrElse(frame -> LOGGER.logp(level, frame.getClassName(), frame.getMethodName(), msg, ex),
                                 () -> LOGGER.log(level, msg, ex));
     }
 
+    // checks the level before concatenating, the GL debug callback can fire for every draw call
     @CalledInAnyThread
     public static void logGL(@NotNull Level logLevel, @NotNull String message) {
-        log(logLevel, "GL: " + message, 2);
+        if(LOGGER.isLoggable(logLevel)) {
+            log(logLevel, "GL: " + message, 2);
+        }
+    }
+
+    // writes the queued log records now, e.g. before exiting or after a crash
+    @CalledInAnyThread
+    public static void flushLog() {
+        if(ASYNC_LOGGER != null) {
+            ASYNC_LOGGER.flush();
+        }
     }
 
     @CalledInAnyThread
@@ -173,6 +325,75 @@ public abstract class Game<SELF extends Game<SELF>> implements AutoCloseable {
         return graphicsThread;
     }
 
+    // ticks per second, 0 for a variable timestep
+    @CalledInAnyThread
+    public double getTickRate() {
+        var tick = tickLength;
+        return tick > 0.0? 1000.0 / tick : 0.0;
+    }
+
+    @CalledInAnyThread
+    public void setTickRate(double tickRate) {
+        tickLength = tickRate > 0.0? 1000.0 / tickRate : 0.0;
+    }
+
+    // the fixed delta time of an update in milliseconds, 0 for a variable timestep
+    @CalledInAnyThread
+    public double getTickLength() {
+        return tickLength;
+    }
+
+    @CalledInAnyThread
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    // ticks skipped because updates couldn't keep up with real time
+    @CalledInAnyThread
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    // sleeps until the next tick or input event instead of polling input every millisecond
+    @CalledInAnyThread
+    public boolean isLowPower() {
+        return lowPower;
+    }
+
+    @CalledInAnyThread
+    public void setLowPower(boolean lowPower) {
+        this.lowPower = lowPower;
+    }
+
+    // how far real time is between the last tick and the next one, from 0 to 1
+    // render blends the previous and the current update states with it, always 1 for a variable timestep
+    @CalledInAnyThread
+    public double getInterpolationAlpha() {
+        var tick = tickLength;
+        if(tick <= 0.0) {
+            return 1.0;
+        }
+        var alpha = (Game.getCurrentTime() - tickBaseTime) / tick;
+        return Math.max(0.0, Math.min(1.0, alpha));
+    }
+
+    // timestamped key, mouse and gamepad events, drained by whoever judges or records them
+    @CalledInAnyThread
+    public @NotNull InputEventQueue getInputEvents() {
+        return inputEvents;
+    }
+
+    @CalledInAnyThread
+    public @NotNull ThreadTimings getTimings() {
+        return timings;
+    }
+
+    // main, audio, asset and graphics, e.g. to log their snapshots every few seconds
+    @CalledInAnyThread
+    public @NotNull List<@NotNull ThreadTimings> getAllTimings() {
+        return List.of(timings, audioThread.getTimings(), assetThread.getTimings(), graphicsThread.getTimings());
+    }
+
     protected abstract @NotNull SELF self();
 
     @CalledInGraphicsThread
@@ -183,13 +404,14 @@ public abstract class Game<SELF extends Game<SELF>> implements AutoCloseable {
         return new SceneManager<>();
     }
 
-    @CalledInMainThread
+    @CalledInUpdateThread
     public void update() {
         sceneManager.update();
     }
 
+    // the alpha is read once, so every scene of the frame blends at the same point in time
     @CalledInGraphicsThread
     public void render() {
-        sceneManager.render();
+        sceneManager.render(getInterpolationAlpha());
     }
 }
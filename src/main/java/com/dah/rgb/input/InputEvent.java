@@ -0,0 +1,44 @@
+package com.dah.rgb.input;
+
+import com.dah.rgb.annotations.NotNull;
+
+// mutable holder for InputEventQueue.poll, meant to be reused so polling doesn't allocate
+// the meaning of the fields depends on the type:
+//   KEY:            code = GLFW key, action = GLFW_PRESS/RELEASE/REPEAT, mods, device = scancode
+//   CHAR:           code = codepoint
+//   MOUSE_BUTTON:   code = GLFW mouse button, action, mods
+//   CURSOR:         x, y in screen coordinates
+//   SCROLL:         x, y offsets
+//   GAMEPAD_BUTTON: device = joystick id, code = GLFW gamepad button, action
+//   GAMEPAD_AXIS:   device = joystick id, code = GLFW gamepad axis, x = value from -1 to 1
+public final class InputEvent {
+    public static final int KEY = 0, CHAR = 1, MOUSE_BUTTON = 2, CURSOR = 3, SCROLL = 4,
+            GAMEPAD_BUTTON = 5, GAMEPAD_AXIS = 6;
+
+    public int type, device, code, action, mods;
+    public double x, y;
+    // Game.getCurrentTime() when the event was received
+    public double time;
+
+    // cursor and axis events carry absolute values, so a newer one supersedes the older ones
+    public static boolean isMotion(int type) {
+        return type == CURSOR || type == GAMEPAD_AXIS;
+    }
+
+    void set(int type, int device, int code, int action, int mods, double x, double y, double time) {
+        this.type = type;
+        this.device = device;
+        this.code = code;
+        this.action = action;
+        this.mods = mods;
+        this.x = x;
+        this.y = y;
+        this.time = time;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "InputEvent[type=%d, device=%d, code=%d, action=%d, mods=%d, x=%f, y=%f, time=%f]"
+                .formatted(type, device, code, action, mods, x, y, time);
+    }
+}
@@ -0,0 +1,7 @@
+package com.dah.rgb.input;
+
+// receives drained events field by field, so draining allocates nothing, see InputEvent for the fields
+@FunctionalInterface
+public interface InputEventHandler {
+    void onEvent(int type, int device, int code, int action, int mods, double x, double y, double time);
+}
@@ -0,0 +1,175 @@
+package com.dah.rgb.input;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// preallocated lock-free queue of timestamped input events, stored as primitive records in parallel arrays
+// multi-producer/multi-consumer, slots are sequenced the same way as MpscRingQueue but consumers claim
+// them with a CAS, so judgement, UI and replay recording can drain from their own threads
+// a full queue drops the new event and counts it, the input thread never waits
+// motion events (see InputEvent.isMotion) may only fill three quarters of it, the last quarter is kept for
+// key, char, button and scroll events, so a flood of cursor or axis events never pushes them out
+// a motion event turned away is only stale once a newer one comes, producers keep the latest value and
+// offer it again, see GLFWGame
+public class InputEventQueue {
+    private final int capacity, mask, motionLimit;
+    private final @NotNull AtomicLongArray sequences;
+    private final @NotNull AtomicLong producerIndex, consumerIndex;
+    // plain arrays, published by the volatile sequence store
+    private final int[] types, devices, codes, actions, mods;
+    private final double[] xs, ys, times;
+
+    private final @NotNull AtomicLong droppedCount, skippedMotionCount;
+
+    public InputEventQueue(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity <= 1? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.motionLimit = this.capacity - (this.capacity >>> 2);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for(int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.producerIndex = new AtomicLong();
+        this.consumerIndex = new AtomicLong();
+        this.types = new int[this.capacity];
+        this.devices = new int[this.capacity];
+        this.codes = new int[this.capacity];
+        this.actions = new int[this.capacity];
+        this.mods = new int[this.capacity];
+        this.xs = new double[this.capacity];
+        this.ys = new double[this.capacity];
+        this.times = new double[this.capacity];
+        this.droppedCount = new AtomicLong();
+        this.skippedMotionCount = new AtomicLong();
+    }
+
+    // returns false if the queue is full, or for a motion event, if it is three quarters full
+    @CalledInAnyThread
+    public boolean offer(int type, int device, int code, int action, int mods, double x, double y, double time) {
+        var motion = InputEvent.isMotion(type);
+        long index;
+        int slot;
+        while(true) {
+            index = producerIndex.get();
+            slot = (int) index & mask;
+            var diff = sequences.get(slot) - index;
+            if(diff == 0) {
+                // a consumer may be ahead of what we read, which only turns away a motion event early
+                if(motion && index - consumerIndex.get() >= motionLimit) {
+                    skippedMotionCount.incrementAndGet();
+                    return false;
+                }
+                if(producerIndex.compareAndSet(index, index + 1)) {
+                    break;
+                }
+            } else if(diff < 0) {
+                droppedCount.incrementAndGet();
+                return false;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        types[slot] = type;
+        devices[slot] = device;
+        codes[slot] = code;
+        actions[slot] = action;
+        this.mods[slot] = mods;
+        xs[slot] = x;
+        ys[slot] = y;
+        times[slot] = time;
+        sequences.set(slot, index + 1);
+        return true;
+    }
+
+    // copies the oldest event into event, false if the queue is empty
+    @CalledInAnyThread
+    public boolean poll(@NotNull InputEvent event) {
+        long index;
+        int slot;
+        while(true) {
+            index = consumerIndex.get();
+            slot = (int) index & mask;
+            var diff = sequences.get(slot) - (index + 1);
+            if(diff == 0) {
+                if(consumerIndex.compareAndSet(index, index + 1)) {
+                    break;
+                }
+            } else if(diff < 0) {
+                // empty, or claimed by a producer that hasn't written it yet
+                return false;
+            } else {
+                // another consumer took it
+                Thread.onSpinWait();
+            }
+        }
+        event.set(types[slot], devices[slot], codes[slot], actions[slot], mods[slot], xs[slot], ys[slot], times[slot]);
+        sequences.set(slot, index + capacity);
+        return true;
+    }
+
+    // hands up to limit events to handler in order, returns how many were drained
+    @CalledInAnyThread
+    public int drain(@NotNull InputEventHandler handler, int limit) {
+        int drained = 0;
+        long index;
+        int slot;
+        while(drained < limit) {
+            index = consumerIndex.get();
+            slot = (int) index & mask;
+            var diff = sequences.get(slot) - (index + 1);
+            if(diff < 0) {
+                break;
+            }
+            if(diff > 0 || !consumerIndex.compareAndSet(index, index + 1)) {
+                Thread.onSpinWait();
+                continue;
+            }
+            // copied out before the slot is released, the handler may take its time
+            int type = types[slot], device = devices[slot], code = codes[slot], action = actions[slot], mod = mods[slot];
+            double x = xs[slot], y = ys[slot], time = times[slot];
+            sequences.set(slot, index + capacity);
+            handler.onEvent(type, device, code, action, mod, x, y, time);
+            drained++;
+        }
+        return drained;
+    }
+
+    @CalledInAnyThread
+    public int drain(@NotNull InputEventHandler handler) {
+        return drain(handler, Integer.MAX_VALUE);
+    }
+
+    @CalledInAnyThread
+    public int size() {
+        var size = producerIndex.get() - consumerIndex.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @CalledInAnyThread
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @CalledInAnyThread
+    public int capacity() {
+        return capacity;
+    }
+
+    // events lost because the queue was full, motion events that could still fit count as skipped instead
+    @CalledInAnyThread
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    // motion events turned away to keep the last quarter for key, char, button and scroll events
+    @CalledInAnyThread
+    public long getSkippedMotionCount() {
+        return skippedMotionCount.get();
+    }
+}
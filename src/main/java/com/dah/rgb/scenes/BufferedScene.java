@@ -0,0 +1,53 @@
+package com.dah.rgb.scenes;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInGraphicsThread;
+import com.dah.rgb.annotations.CalledInUpdateThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.game.Game;
+import com.dah.rgb.utils.concurrent.TripleBuffer;
+
+import java.util.function.Supplier;
+
+// a scene whose render never reads what update writes: every update copies what render needs into a
+// render state S, which is handed to the graphics thread through a TripleBuffer
+// the three states are created once by the factory and reused, writeRenderState must overwrite every field render uses
+// render only gets the newest state, to interpolate between the last two updates a state holds both:
+// writeRenderState copies the current values of the last published state into its previous ones,
+// then render blends previous and current with the alpha
+public abstract class BufferedScene<G extends Game<G>, P extends Scene<G, ?, ?>, M extends SceneManager<G>, S> extends Scene<G, P, M> {
+    protected final @NotNull TripleBuffer<S> renderStates;
+
+    public BufferedScene(@NotNull G game, @NotNull P parent, @NotNull Supplier<? extends S> stateFactory) {
+        super(game, parent);
+        this.renderStates = new TripleBuffer<>(stateFactory);
+    }
+
+    // last is the state the previous update published, null on the first update, it may be rendered
+    // at the same time so it is only read
+    @CalledInUpdateThread
+    protected abstract void writeRenderState(@NotNull S state, @Nullable S last);
+
+    @CalledInGraphicsThread
+    protected abstract void render(@NotNull S state, double alpha);
+
+    @Override
+    public void update() {
+        super.update();
+        writeRenderState(renderStates.beginWrite(), renderStates.getLastPublished());
+        renderStates.publish();
+    }
+
+    @Override
+    @CalledInGraphicsThread
+    public void render(double alpha) {
+        render(renderStates.acquire(), alpha);
+        super.render(alpha);
+    }
+
+    @CalledInAnyThread
+    public @NotNull TripleBuffer<S> getRenderStates() {
+        return renderStates;
+    }
+}
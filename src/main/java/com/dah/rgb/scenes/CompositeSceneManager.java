@@ -0,0 +1,217 @@
+package com.dah.rgb.scenes;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInUpdateThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.game.Game;
+import com.dah.rgb.utils.Config;
+import com.dah.rgb.utils.tracing.Tracing;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+
+// a scene manager that also runs several child scenes (layers) every update and render, after its current scene
+// with parallel updates on, children whose isIndependent() is true update on a fork-join pool while the others
+// update in order on the calling thread, all of them are joined before update() returns,
+// so render always sees every child done
+// children render in order on the graphics thread
+// adding and removing children takes effect at the start of the next update, where their show() and hide()
+// run on the update thread like the ones of the current scene
+public class CompositeSceneManager<G extends Game<G>> extends SceneManager<G> {
+    public static final boolean PARALLEL_UPDATE = Config.PARALLEL_SCENE_UPDATE.get(false);
+    public static final int UPDATE_WORKERS = Config.SCENE_UPDATE_WORKERS.get(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    // copy on write, render iterates the array the graphics thread last saw, only the update thread writes it
+    private volatile ChildUpdate[] children;
+    // guarded by this, changesPending saves the update from taking the lock when there are none
+    private @NotNull List<@NotNull ChildChange> pendingChanges;
+    private volatile boolean changesPending;
+    private volatile boolean parallel;
+    private volatile double lastUpdateTime;
+
+    public CompositeSceneManager() {
+        this.children = new ChildUpdate[0];
+        this.pendingChanges = new ArrayList<>();
+        this.parallel = PARALLEL_UPDATE;
+    }
+
+    // the scene is shown and updated from the next update on
+    @CalledInAnyThread
+    public synchronized void addChild(@NotNull Scene<G, ?, ?> scene) {
+        pendingChanges.add(new ChildChange(scene, true));
+        changesPending = true;
+    }
+
+    // the scene is hidden and no longer updated from the next update on, nothing happens if it isn't a child
+    @CalledInAnyThread
+    public synchronized void removeChild(@NotNull Scene<G, ?, ?> scene) {
+        pendingChanges.add(new ChildChange(scene, false));
+        changesPending = true;
+    }
+
+    // in the order they were requested, show() and hide() may add or remove children for the next update
+    @CalledInUpdateThread
+    private void applyChildChanges() {
+        List<ChildChange> changes;
+        synchronized(this) {
+            changes = pendingChanges;
+            pendingChanges = new ArrayList<>();
+            changesPending = false;
+        }
+        for(var change : changes) {
+            var current = children;
+            if(change.add()) {
+                change.scene().show();
+                var copy = new ChildUpdate[current.length + 1];
+                System.arraycopy(current, 0, copy, 0, current.length);
+                copy[current.length] = new ChildUpdate(change.scene());
+                children = copy;
+                continue;
+            }
+            for(int i = 0; i < current.length; i++) {
+                if(current[i].scene == change.scene()) {
+                    change.scene().hide();
+                    var copy = new ChildUpdate[current.length - 1];
+                    System.arraycopy(current, 0, copy, 0, i);
+                    System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+                    children = copy;
+                    break;
+                }
+            }
+        }
+    }
+
+    // children added or removed since the last update aren't in it yet
+    // only scenes of G are added
+    @CalledInAnyThread
+    @SuppressWarnings("unchecked")
+    public @NotNull List<@NotNull Scene<G, ?, ?>> getChildren() {
+        var current = children;
+        var scenes = new ArrayList<Scene<G, ?, ?>>(current.length);
+        for(var child : current) {
+            scenes.add((Scene<G, ?, ?>) child.scene);
+        }
+        return scenes;
+    }
+
+    @Override
+    public void update() {
+        var start = Game.getCurrentTime();
+        super.update();
+        if(changesPending) {
+            applyChildChanges();
+        }
+        var current = children;
+        if(!parallel || current.length < 2) {
+            for(var child : current) {
+                child.scene.update();
+            }
+        } else {
+            updateInParallel(current);
+        }
+        lastUpdateTime = Game.getCurrentTime() - start;
+    }
+
+    private void updateInParallel(ChildUpdate[] current) {
+        var pool = Workers.POOL;
+        for(var child : current) {
+            // remembered, a scene changing its mind mid-update must not make us join a task never forked
+            child.forked = child.scene.isIndependent();
+            if(child.forked) {
+                child.reinitialize();
+                pool.execute(child);
+            }
+        }
+        RuntimeException failure = null;
+        for(var child : current) {
+            if(!child.forked) {
+                try {
+                    child.scene.update();
+                } catch (RuntimeException e) {
+                    failure = failure == null? e : failure;
+                }
+            }
+        }
+        // in child order, so the first failure reported doesn't depend on scheduling
+        for(var child : current) {
+            if(child.forked) {
+                try {
+                    child.join();
+                } catch (RuntimeException e) {
+                    failure = failure == null? e : failure;
+                }
+            }
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void render(double alpha) {
+        super.render(alpha);
+        for(var child : children) {
+            child.scene.render(alpha);
+        }
+    }
+
+    @CalledInAnyThread
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    // only set it once the independent children don't share mutable state
+    @CalledInAnyThread
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    // milliseconds the last update() took on the calling thread, children included
+    @CalledInAnyThread
+    public double getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    // preallocated and reinitialized every update, so forking doesn't allocate
+    private static final class ChildUpdate extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final @NotNull Scene<?, ?, ?> scene;
+        private boolean forked;
+
+        private ChildUpdate(@NotNull Scene<?, ?, ?> scene) {
+            this.scene = scene;
+        }
+
+        @Override
+        protected void compute() {
+            var spans = Tracing.currentBufferIfEnabled();
+            if(spans == null) {
+                scene.update();
+                return;
+            }
+            var span = spans.begin();
+            scene.update();
+            spans.end(span, scene.getClass());
+        }
+    }
+
+    private record ChildChange(@NotNull Scene<?, ?, ?> scene, boolean add) {
+    }
+
+    // created on the first parallel update, shared by every composite
+    private static final class Workers {
+        private static final @NotNull ForkJoinPool POOL = new ForkJoinPool(UPDATE_WORKERS, pool -> {
+            var worker = new ForkJoinWorkerThread(pool) {
+            };
+            worker.setName("SceneUpdate-" + worker.getPoolIndex());
+            return worker;
+        }, (thread, ex) -> Game.logException(Level.SEVERE, thread.getName() + " threw an uncaught exception", ex), false);
+    }
+}
@@ -1,8 +1,11 @@
 package com.dah.rgb.scenes;
 
+import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.NotNull;
 import com.dah.rgb.game.Game;
 
+import java.util.concurrent.CompletableFuture;
+
 public abstract class Scene<G extends Game<G>, P extends Scene<G, ?, ?>, M extends SceneManager<G>> {
     protected final @NotNull G game;
     protected final @NotNull P parent;
@@ -24,8 +27,9 @@ public abstract class Scene<G extends Game<G>, P extends Scene<G, ?, ?>, M exten
         return parent;
     }
 
-    public void render() {
-        sceneManager.render();
+    // alpha is Game.getInterpolationAlpha() read once for the frame, where real time is between the last two updates
+    public void render(double alpha) {
+        sceneManager.render(alpha);
     }
 
     public void update() {
@@ -36,6 +40,30 @@ public abstract class Scene<G extends Game<G>, P extends Scene<G, ?, ?>, M exten
 
     }
 
+    // true if update() only touches this scene's own state (and thread-safe engine APIs),
+    // so CompositeSceneManager may run it at the same time as its siblings
+    @CalledInAnyThread
+    public boolean isIndependent() {
+        return false;
+    }
+
+    // loads what show() needs while the current scene keeps running, see SceneManager.transitionTo
+    // the returned future should only complete once everything is loaded, e.g. by combining
+    // AssetThread.load futures and GL uploads executed on the GraphicsThread
+    // a cancelled transition cancels the returned future: stages chained on it are skipped, work of its own
+    // should check isCancelled() between steps and stop, and release what it loads after discard() ran
+    @CalledInAnyThread
+    public @NotNull CompletableFuture<?> prepare() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // called instead of show() once the preparation settled if the transition was cancelled or failed,
+    // releases what prepare() loaded, can run on any thread
+    @CalledInAnyThread
+    public void discard() {
+
+    }
+
     public void show() {
 
     }
@@ -1,21 +1,27 @@
 package com.dah.rgb.scenes;
 
+import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.NotNull;
 import com.dah.rgb.annotations.Nullable;
 import com.dah.rgb.game.Game;
+import com.dah.rgb.utils.tracing.Tracing;
 
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
+import java.util.logging.Level;
 
 public class SceneManager<G extends Game<G>> {
-    private @Nullable Scene<G, ?, ?> currentScene;
+    // volatile, render runs on the graphics thread while update swaps scenes
+    private volatile @Nullable Scene<G, ?, ?> currentScene;
+    private volatile @Nullable SceneTransition<G> pendingTransition;
+    private volatile SceneTransition.@Nullable Report lastReport;
 
     public SceneManager() {
         this.currentScene = null;
     }
 
+    // swaps right away, hide() and show() run on the calling thread, cancels a pending transition
     public void setCurrentScene(@Nullable Scene<G, ?, ?> currentScene) {
+        cancelTransition();
         applyToCurrentScene(Scene::hide);
         if(currentScene != null) {
             currentScene.show();
@@ -23,18 +29,111 @@ public class SceneManager<G extends Game<G>> {
         this.currentScene = currentScene;
     }
 
-    public void render() {
-        applyToCurrentScene(Scene::render);
+    // starts preparing the scene (Scene.prepare) while the current scene keeps running,
+    // the first update after the preparation completed swaps it in, a pending transition is cancelled
+    @CalledInAnyThread
+    public @NotNull SceneTransition<G> transitionTo(@NotNull Scene<G, ?, ?> scene) {
+        var transition = new SceneTransition<>(scene);
+        var previous = pendingTransition;
+        pendingTransition = transition;
+        if(previous != null) {
+            previous.cancel();
+        }
+        return transition;
+    }
+
+    // e.g. when the player backs out of a loading screen, returns false if nothing was pending
+    @CalledInAnyThread
+    public boolean cancelTransition() {
+        var transition = pendingTransition;
+        if(transition == null) {
+            return false;
+        }
+        pendingTransition = null;
+        return transition.cancel();
+    }
+
+    public void render(double alpha) {
+        var currentScene = this.currentScene;
+        if(currentScene != null) {
+            currentScene.render(alpha);
+        }
     }
 
     public void update() {
+        var transition = pendingTransition;
+        if(transition != null) {
+            updateTransition(transition);
+        }
         applyToCurrentScene(Scene::update);
     }
 
+    private void updateTransition(@NotNull SceneTransition<G> transition) {
+        if(!transition.isPreparing()) {
+            clearTransition(transition);
+            return;
+        }
+        if(!transition.isReady()) {
+            transition.countUpdate();
+            return;
+        }
+        var failure = transition.getPreparationFailure();
+        if(failure != null) {
+            if(transition.fail(failure)) {
+                Game.logException(Level.WARNING, "Preparing " + transition.getScene().getClass().getName() + " failed", failure);
+            }
+            clearTransition(transition);
+            return;
+        }
+        if(!transition.claimSwap()) {
+            clearTransition(transition);
+            return;
+        }
+
+        var spans = Tracing.currentBuffer();
+        var span = spans.begin();
+        var start = Game.getCurrentTime();
+        applyToCurrentScene(Scene::hide);
+        var hidden = Game.getCurrentTime();
+        transition.getScene().show();
+        currentScene = transition.getScene();
+        var end = Game.getCurrentTime();
+        spans.end(span, "sceneSwap");
+
+        transition.completeSwap(hidden - start, end - hidden);
+        clearTransition(transition);
+        lastReport = transition.getReport();
+        if(Game.LOGGER.isLoggable(Level.FINE)) {
+            Game.log(Level.FINE, "Scene transition to " + transition.getScene().getClass().getName() + ": " + lastReport);
+        }
+    }
+
+    private void clearTransition(@NotNull SceneTransition<G> transition) {
+        if(pendingTransition == transition) {
+            pendingTransition = null;
+        }
+    }
+
     private void applyToCurrentScene(@NotNull Consumer<@NotNull Scene<G, ?, ?>> callback) {
         var currentScene = this.currentScene;
         if(currentScene != null) {
             callback.accept(currentScene);
         }
     }
+
+    @CalledInAnyThread
+    public @Nullable Scene<G, ?, ?> getCurrentScene() {
+        return currentScene;
+    }
+
+    @CalledInAnyThread
+    public @Nullable SceneTransition<G> getPendingTransition() {
+        return pendingTransition;
+    }
+
+    // the report of the last transition that was swapped in
+    @CalledInAnyThread
+    public SceneTransition.@Nullable Report getLastReport() {
+        return lastReport;
+    }
 }
@@ -0,0 +1,161 @@
+package com.dah.rgb.scenes;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.CalledInUpdateThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.game.Game;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// a scene being prepared in the background before SceneManager swaps it in, see SceneManager.transitionTo
+// states: PREPARING -> SHOWN, FAILED or CANCELLED, the swap and cancel race on the same CAS
+public final class SceneTransition<G extends Game<G>> {
+    static final int PREPARING = 0, SHOWN = 1, FAILED = 2, CANCELLED = 3;
+
+    private final @NotNull Scene<G, ?, ?> scene;
+    private final @NotNull CompletableFuture<?> preparation;
+    private final @NotNull CompletableFuture<@NotNull Scene<G, ?, ?>> shown;
+    private final @NotNull AtomicInteger state;
+
+    // Game.getCurrentTime() timestamps, NaN until reached
+    private final double requestTime;
+    private volatile double preparedTime;
+    private volatile long updatesWhilePreparing;
+    private volatile @Nullable Report report;
+
+    SceneTransition(@NotNull Scene<G, ?, ?> scene) {
+        this.scene = scene;
+        this.shown = new CompletableFuture<>();
+        this.state = new AtomicInteger(PREPARING);
+        this.requestTime = Game.getCurrentTime();
+        this.preparedTime = Double.NaN;
+        CompletableFuture<?> preparation;
+        try {
+            preparation = scene.prepare();
+        } catch (RuntimeException e) {
+            preparation = CompletableFuture.failedFuture(e);
+        }
+        this.preparation = preparation;
+        preparation.whenComplete((result, ex) -> preparedTime = Game.getCurrentTime());
+    }
+
+    // the scene won't be shown, the future returned by Scene.prepare is cancelled, so it settles right away
+    // unless it already did, then Scene.discard releases what the preparation loaded
+    // returns false if the scene was already shown
+    @CalledInAnyThread
+    public boolean cancel() {
+        if(!state.compareAndSet(PREPARING, CANCELLED)) {
+            return state.get() == CANCELLED;
+        }
+        finish(Double.NaN, Double.NaN, true);
+        shown.cancel(false);
+        preparation.cancel(false);
+        preparation.whenComplete((result, ex) -> scene.discard());
+        return true;
+    }
+
+    @CalledInUpdateThread
+    boolean isReady() {
+        return preparation.isDone();
+    }
+
+    @CalledInUpdateThread
+    void countUpdate() {
+        updatesWhilePreparing++;
+    }
+
+    // returns false if the transition was cancelled in the meantime
+    @CalledInUpdateThread
+    boolean claimSwap() {
+        if(!state.compareAndSet(PREPARING, SHOWN)) {
+            return false;
+        }
+        // the completion callback may not have run yet
+        if(Double.isNaN(preparedTime)) {
+            preparedTime = Game.getCurrentTime();
+        }
+        return true;
+    }
+
+    @CalledInUpdateThread
+    void completeSwap(double hideTime, double showTime) {
+        finish(hideTime, showTime, false);
+        shown.complete(scene);
+    }
+
+    @CalledInUpdateThread
+    boolean fail(@NotNull Throwable ex) {
+        if(!state.compareAndSet(PREPARING, FAILED)) {
+            return false;
+        }
+        finish(Double.NaN, Double.NaN, false);
+        shown.completeExceptionally(ex);
+        scene.discard();
+        return true;
+    }
+
+    private void finish(double hideTime, double showTime, boolean cancelled) {
+        var now = Game.getCurrentTime();
+        var prepared = preparedTime;
+        report = new Report(prepared - requestTime, now - prepared - hideTime - showTime, hideTime, showTime,
+                now - requestTime, updatesWhilePreparing, cancelled);
+    }
+
+    // the failure of the preparation, or null if it succeeded or isn't done
+    @CalledInUpdateThread
+    @Nullable Throwable getPreparationFailure() {
+        if(!preparation.isCompletedExceptionally()) {
+            return null;
+        }
+        try {
+            preparation.join();
+            return null;
+        } catch (RuntimeException e) {
+            return e.getCause() != null? e.getCause() : e;
+        }
+    }
+
+    @CalledInAnyThread
+    public @NotNull Scene<G, ?, ?> getScene() {
+        return scene;
+    }
+
+    // completes with the scene once it is the current scene, cancelled or failed otherwise
+    @CalledInAnyThread
+    public @NotNull CompletableFuture<@NotNull Scene<G, ?, ?>> getShown() {
+        return shown;
+    }
+
+    @CalledInAnyThread
+    public boolean isPreparing() {
+        return state.get() == PREPARING;
+    }
+
+    @CalledInAnyThread
+    public boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+
+    // null until the transition is shown, cancelled or failed
+    @CalledInAnyThread
+    public @Nullable Report getReport() {
+        return report;
+    }
+
+    // all in milliseconds, NaN for the phases that didn't happen
+    //   prepare:    from transitionTo until the preparation completed
+    //   swapDelay:  from then until the swapping update started hiding the previous scene
+    //   hide, show: time spent in hide() and show() on the update thread, the hitch the player can see
+    //   total:      from transitionTo until the end
+    //   updatesWhilePreparing: updates of the previous scene that ran during the preparation
+    public record Report(double prepare, double swapDelay, double hide, double show, double total,
+                         long updatesWhilePreparing, boolean cancelled) {
+        @Override
+        public String toString() {
+            return (cancelled? "cancelled " : "") + "prepare=%.3fms swapDelay=%.3fms hide=%.3fms show=%.3fms total=%.3fms updates=%d"
+                    .formatted(prepare, swapDelay, hide, show, total, updatesWhilePreparing);
+        }
+    }
+}
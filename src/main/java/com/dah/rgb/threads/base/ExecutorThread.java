@@ -5,46 +5,128 @@ import com.dah.rgb.annotations.CalledInMainThread;
 import com.dah.rgb.annotations.NotNull;
 import com.dah.rgb.annotations.Nullable;
 import com.dah.rgb.game.Game;
+import com.dah.rgb.utils.Config;
+import com.dah.rgb.utils.concurrent.MpscRingQueue;
+import com.dah.rgb.utils.tracing.Tracing;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Comparator;
+import java.util.PriorityQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class ExecutorThread<G extends Game<G>> extends GameThread<G> implements Executor {
+    public static final int QUEUE_CAPACITY = Config.EXECUTOR_QUEUE_CAPACITY.get(1024);
+    public static final double DEFAULT_TIME_BUDGET = Config.FRAME_WORK_TIME_BUDGET.get(4.0);
+    public static final double DEADLINE_URGENCY_WINDOW = Config.DEADLINE_URGENCY_WINDOW.get(2.0);
+    public static final int STARVATION_LIMIT = Config.STARVATION_LIMIT.get(64);
+    public static final double NO_DEADLINE = Double.POSITIVE_INFINITY;
+    private static final long BACKPRESSURE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final Priority[] PRIORITIES = Priority.values();
 
     private final @NotNull ExecutionPolicy policy;
-    private final @NotNull List<@NotNull Runnable> works;
-    private final @Nullable Phaser lock;
+    // one lock-free inbox per priority class, plus one for works with a deadline
+    private final @NotNull MpscRingQueue<@NotNull Runnable>[] works;
+    private final @NotNull MpscRingQueue<@NotNull DeadlineWork> deadlineInbox;
+    private final @NotNull Executor[] priorityExecutors;
+    private final boolean waitForWorks;
+    private volatile boolean parked;
+
+    // only touched by this thread
+    // one earliest-deadline-first queue per priority class
+    private final @NotNull PriorityQueue<@NotNull DeadlineWork>[] deadlineWorks;
+    private final int[] starvedPicks;
+    private long deadlineSequence;
+
+    // EXECUTE_WITHIN_TIME_BUDGET state, in milliseconds
+    private volatile double timeBudget;
+    private volatile double lastBudgetUsed;
+    private volatile int lastWorksExecuted, lastWorksDeferred;
+
+    private final @NotNull AtomicLong backpressureCount, callerRunsCount;
+    private volatile long missedDeadlineCount, starvationPromotionCount;
 
     @CalledInMainThread
     public ExecutorThread(@NotNull G game, @NotNull ExecutionPolicy policy, boolean waitForWorks) {
         super(game);
         this.policy = policy;
-        this.works = Collections.synchronizedList(new LinkedList<>());
-        if(waitForWorks) {
-            lock = new Phaser(0) {
-                @Override
-                protected boolean onAdvance(int phase, int registeredParties) {
-                    return false;
-                }
-            };
-        } else {
-            lock = null;
+        @SuppressWarnings("unchecked")
+        var works = (MpscRingQueue<@NotNull Runnable>[]) new MpscRingQueue<?>[PRIORITIES.length];
+        @SuppressWarnings("unchecked")
+        var deadlineWorks = (PriorityQueue<@NotNull DeadlineWork>[]) new PriorityQueue<?>[PRIORITIES.length];
+        this.works = works;
+        this.deadlineWorks = deadlineWorks;
+        this.priorityExecutors = new Executor[PRIORITIES.length];
+        for(var priority : PRIORITIES) {
+            works[priority.ordinal()] = new MpscRingQueue<>(QUEUE_CAPACITY);
+            deadlineWorks[priority.ordinal()] = new PriorityQueue<>(Comparator.comparingDouble(DeadlineWork::deadline)
+                    .thenComparingLong(DeadlineWork::sequence));
+            priorityExecutors[priority.ordinal()] = command -> execute(command, priority);
         }
+        this.deadlineInbox = new MpscRingQueue<>(QUEUE_CAPACITY);
+        this.starvedPicks = new int[PRIORITIES.length];
+        this.waitForWorks = waitForWorks;
+        this.timeBudget = DEFAULT_TIME_BUDGET;
+        this.backpressureCount = new AtomicLong();
+        this.callerRunsCount = new AtomicLong();
     }
 
     @Override
     @CalledInAnyThread
     public void execute(@NotNull Runnable command) {
-        synchronized (works) {
-            works.add(command);
+        execute(command, Priority.NORMAL);
+    }
+
+    @CalledInAnyThread
+    public void execute(@NotNull Runnable command, @NotNull Priority priority) {
+        offer(works[priority.ordinal()], traced(command), command);
+    }
+
+    // deadline is an absolute Game.getCurrentTime() timestamp
+    @CalledInAnyThread
+    public void execute(@NotNull Runnable command, @NotNull Priority priority, double deadline) {
+        if(deadline == NO_DEADLINE) {
+            execute(command, priority);
+        } else {
+            offer(deadlineInbox, new DeadlineWork(traced(command), priority, deadline), command);
+        }
+    }
+
+    // the returned executors are cached, so passing them to CompletableFuture doesn't allocate
+    @CalledInAnyThread
+    public @NotNull Executor executor(@NotNull Priority priority) {
+        return priorityExecutors[priority.ordinal()];
+    }
+
+    @CalledInAnyThread
+    public @NotNull Executor executor(@NotNull Priority priority, double deadline) {
+        if(deadline == NO_DEADLINE) {
+            return executor(priority);
         }
-        if(lock != null && lock.getRegisteredParties() > 0) {
-            lock.arriveAndDeregister();
+        return command -> execute(command, priority, deadline);
+    }
+
+    // while tracing, works remember who submitted them so their span can be tagged with it
+    private static @NotNull Runnable traced(@NotNull Runnable command) {
+        return Tracing.isEnabled()? new TracedWork(command, Thread.currentThread().getName()) : command;
+    }
+
+    private <T> void offer(@NotNull MpscRingQueue<T> queue, @NotNull T element, @NotNull Runnable command) {
+        if(!queue.offer(element)) {
+            backpressureCount.incrementAndGet();
+            while(!queue.offer(element)) {
+                if(Thread.currentThread() == thread) {
+                    // the queue can only be drained by us, waiting would deadlock
+                    callerRunsCount.incrementAndGet();
+                    command.run();
+                    return;
+                }
+                LockSupport.unpark(thread);
+                LockSupport.parkNanos(this, BACKPRESSURE_PARK_NANOS);
+            }
         }
+        signalWork();
     }
 
     @Override
@@ -52,48 +134,285 @@ public class ExecutorThread<G extends Game<G>> extends GameThread<G> implements
         super.loop();
         switch(policy) {
             case EXECUTE_ONE_PER_LOOP -> {
-                Runnable work = null;
-                synchronized (works) {
-                    if(!works.isEmpty()) {
-                        work = works.remove(0);
-                    }
-                }
+                var work = nextWork();
                 if(work != null) {
-                    work.run();
+                    runWork(work);
                 }
             }
 
+            // only drain what was queued before this loop, so works that resubmit themselves can't starve the loop
             case EXECUTE_AS_MUCH_AS_POSSIBLE -> {
-                List<Runnable> copy;
-                synchronized (works) {
-                    copy = new ArrayList<>(works);
-                    works.clear();
-                }
-                for(var work : copy) {
-                    if(Thread.interrupted()) {
-                        return;
+                for(int i = getQueueDepth(); i > 0 && !Thread.currentThread().isInterrupted(); i--) {
+                    var work = nextWork();
+                    if(work == null) {
+                        break;
                     }
-                    work.run();
+                    runWork(work);
                 }
             }
+
+            case EXECUTE_WITHIN_TIME_BUDGET -> executeWithinTimeBudget();
+        }
+
+        if(waitForWorks) {
+            awaitWorks(0);
+        }
+    }
+
+    private void runWork(@NotNull Runnable work) {
+        var start = System.nanoTime();
+        var spans = spans();
+        if(work instanceof TracedWork traced) {
+            var span = spans.begin();
+            traced.work.run();
+            spans.end(span, traced.work.getClass(), traced.submitter);
+        } else {
+            var span = spans.begin();
+            work.run();
+            spans.end(span, work.getClass());
+        }
+        timings.recordTask(System.nanoTime() - start);
+    }
+
+    // parks until a work is submitted, wakeUp() is called or the timeout (0 = none) passes
+    // returns right away if works are already pending
+    // CalledInTheThread
+    protected void awaitWorks(long timeoutNanos) {
+        parked = true;
+        if(isIdle() && !Thread.currentThread().isInterrupted()) {
+            var start = System.nanoTime();
+            if(timeoutNanos > 0) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            } else {
+                LockSupport.park(this);
+            }
+            timings.recordIdle(System.nanoTime() - start);
+        }
+        parked = false;
+    }
+
+    @CalledInAnyThread
+    public void wakeUp() {
+        LockSupport.unpark(thread);
+    }
+
+    // cheap wake up for producers, only unparks the thread if it is waiting in awaitWorks
+    // the work must be visible to isIdle() before this is called
+    @CalledInAnyThread
+    protected void signalWork() {
+        if(parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void executeWithinTimeBudget() {
+        var start = Game.getCurrentTime();
+        var deadline = start + timeBudget;
+        var now = start;
+        int executed = 0;
+        // at least one work runs per loop, so a work longer than the budget can't stall the queue forever
+        while(executed == 0 || now < deadline) {
+            if(Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            var work = nextWork();
+            if(work == null) {
+                break;
+            }
+            runWork(work);
+            executed++;
+            now = Game.getCurrentTime();
+        }
+        lastBudgetUsed = now - start;
+        lastWorksExecuted = executed;
+        lastWorksDeferred = getQueueDepth();
+    }
+
+    // CalledInTheThread
+    private @Nullable Runnable nextWork() {
+        DeadlineWork pending;
+        while((pending = deadlineInbox.poll()) != null) {
+            pending.sequence = deadlineSequence++;
+            deadlineWorks[pending.priority.ordinal()].add(pending);
+        }
+
+        // once deadlines are close they go first, the highest class with an urgent work wins,
+        // its earliest deadline first
+        var now = Game.getCurrentTime();
+        for(int i = 0; i < PRIORITIES.length; i++) {
+            var earliest = deadlineWorks[i].peek();
+            if(earliest != null && earliest.deadline - now <= DEADLINE_URGENCY_WINDOW) {
+                return takeDeadlineWork(i);
+            }
+        }
+
+        int chosen = -1;
+        for(int i = 0; i < PRIORITIES.length; i++) {
+            var hasWork = !works[i].isEmpty() || !deadlineWorks[i].isEmpty();
+            if(!hasWork) {
+                starvedPicks[i] = 0;
+            } else if(chosen == -1) {
+                chosen = i;
+            } else if(++starvedPicks[i] >= STARVATION_LIMIT) {
+                // aging: a lower class that has been passed over too many times gets one turn
+                chosen = i;
+                starvationPromotionCount++;
+            }
+        }
+        if(chosen == -1) {
+            return null;
+        }
+        starvedPicks[chosen] = 0;
+
+        // works with a deadline go before works without one in the same class
+        if(!deadlineWorks[chosen].isEmpty()) {
+            return takeDeadlineWork(chosen);
         }
+        return works[chosen].poll();
+    }
 
-        if(lock != null) {
-            lock.awaitAdvance(lock.register());
+    private @NotNull Runnable takeDeadlineWork(int priority) {
+        var work = deadlineWorks[priority].remove();
+        if(Game.getCurrentTime() > work.deadline) {
+            missedDeadlineCount++;
         }
+        return work.work;
+    }
+
+    // subclasses with their own inboxes must check them too, or awaitWorks may sleep on pending works
+    // CalledInTheThread
+    protected boolean isIdle() {
+        if(!deadlineInbox.isEmpty()) {
+            return false;
+        }
+        for(int i = 0; i < PRIORITIES.length; i++) {
+            if(!works[i].isEmpty() || !deadlineWorks[i].isEmpty()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     @CalledInMainThread
     public void close() {
         super.close();
-        if(lock != null) {
-            lock.forceTermination();
+        LockSupport.unpark(thread);
+    }
+
+    @CalledInAnyThread
+    public int getQueueDepth() {
+        // deadlineWorks.size() is read racily from other threads, this is only a statistic
+        int depth = deadlineInbox.size();
+        for(int i = 0; i < PRIORITIES.length; i++) {
+            depth += works[i].size() + deadlineWorks[i].size();
         }
+        return depth;
+    }
+
+    // works with a deadline are not included
+    @CalledInAnyThread
+    public int getQueueDepth(@NotNull Priority priority) {
+        return works[priority.ordinal()].size();
+    }
+
+    @CalledInAnyThread
+    public int getQueueCapacity() {
+        return works[Priority.NORMAL.ordinal()].capacity();
+    }
+
+    // number of execute calls that found the queue full
+    @CalledInAnyThread
+    public long getBackpressureCount() {
+        return backpressureCount.get();
+    }
+
+    // number of works run inline because the executor thread filled its own queue
+    @CalledInAnyThread
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+
+    // number of works that started after their deadline
+    @CalledInAnyThread
+    public long getMissedDeadlineCount() {
+        return missedDeadlineCount;
+    }
+
+    // number of times a lower priority class ran ahead of a higher one to avoid starvation
+    @CalledInAnyThread
+    public long getStarvationPromotionCount() {
+        return starvationPromotionCount;
+    }
+
+    @CalledInAnyThread
+    public double getTimeBudget() {
+        return timeBudget;
+    }
+
+    // raise this during loading screens to drain bulk uploads faster
+    @CalledInAnyThread
+    public void setTimeBudget(double timeBudget) {
+        this.timeBudget = Math.max(0.0, timeBudget);
+    }
+
+    // time spent running works in the last loop, may exceed the budget by at most one work
+    @CalledInAnyThread
+    public double getLastBudgetUsed() {
+        return lastBudgetUsed;
+    }
+
+    @CalledInAnyThread
+    public int getLastWorksExecuted() {
+        return lastWorksExecuted;
+    }
+
+    // works left in the queue for the next loop
+    @CalledInAnyThread
+    public int getLastWorksDeferred() {
+        return lastWorksDeferred;
     }
 
     public enum ExecutionPolicy {
         EXECUTE_ONE_PER_LOOP,
-        EXECUTE_AS_MUCH_AS_POSSIBLE
+        EXECUTE_AS_MUCH_AS_POSSIBLE,
+        // runs works until the time budget of the loop runs out, the rest is carried to the next loop
+        EXECUTE_WITHIN_TIME_BUDGET
+    }
+
+    // declared from the most to the least urgent
+    public enum Priority {
+        CRITICAL,
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    private record TracedWork(@NotNull Runnable work, @NotNull String submitter) implements Runnable {
+        @Override
+        public void run() {
+            work.run();
+        }
+    }
+
+    private static final class DeadlineWork {
+        private final @NotNull Runnable work;
+        private final @NotNull Priority priority;
+        private final double deadline;
+        private long sequence;
+
+        private DeadlineWork(@NotNull Runnable work, @NotNull Priority priority, double deadline) {
+            this.work = work;
+            this.priority = priority;
+            this.deadline = deadline;
+        }
+
+        private double deadline() {
+            return deadline;
+        }
+
+        private long sequence() {
+            return sequence;
+        }
     }
 }
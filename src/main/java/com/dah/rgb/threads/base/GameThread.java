@@ -4,7 +4,11 @@ import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.CalledInMainThread;
 import com.dah.rgb.game.Game;
 import com.dah.rgb.threads.impl.AudioThread;
+import com.dah.rgb.utils.timers.ThreadTimings;
+import com.dah.rgb.utils.tracing.SpanBuffer;
+import com.dah.rgb.utils.tracing.Tracing;
 
+import java.util.Objects;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -14,7 +18,9 @@ public abstract class GameThread<G extends Game<G>> implements Runnable, AutoClo
     protected G game;
     protected CountDownLatch afterInit, beforeDestroy;
     protected Thread thread;
-    protected AtomicReference<Double> deltaTime;
+    protected final ThreadTimings timings;
+    // bound to the thread running the loop on first use, see Tracing
+    private SpanBuffer spans;
     protected AtomicReference<Phase> currentPhase;
     protected AtomicBoolean initializationSuccess;
 
@@ -24,7 +30,7 @@ public abstract class GameThread<G extends Game<G>> implements Runnable, AutoClo
         afterInit = new CountDownLatch(1);
         beforeDestroy = new CountDownLatch(1);
 
-        deltaTime = new AtomicReference<>();
+        timings = new ThreadTimings(Objects.requireNonNullElse(threadName(), getClass().getName()));
         currentPhase = new AtomicReference<>(Phase.INIT);
         initializationSuccess = new AtomicBoolean();
     }
@@ -40,12 +46,15 @@ public abstract class GameThread<G extends Game<G>> implements Runnable, AutoClo
         afterInit.countDown();
         currentPhase.set(Phase.LOOP);
 
-        var lastLoopTime = Game.getCurrentTime();
+        var lastLoopTime = System.nanoTime();
         while(!Thread.interrupted()) {
-            var now = Game.getCurrentTime();
-            deltaTime.set(now - lastLoopTime);
+            var now = System.nanoTime();
+            timings.recordLoop(now - lastLoopTime);
             lastLoopTime = now;
+            var spans = spans();
+            var span = spans.begin();
             loop();
+            spans.end(span, "loop");
         }
 
         currentPhase.set(Phase.DESTROY);
@@ -62,6 +71,15 @@ public abstract class GameThread<G extends Game<G>> implements Runnable, AutoClo
         }
     }
 
+    // CalledInTheThread
+    protected SpanBuffer spans() {
+        var buffer = spans;
+        if(buffer == null) {
+            spans = buffer = Tracing.currentBuffer();
+        }
+        return buffer;
+    }
+
     // CalledInTheThread
     public boolean init() {
         if(!(this instanceof AudioThread<?>)) {
@@ -139,6 +157,12 @@ public abstract class GameThread<G extends Game<G>> implements Runnable, AutoClo
         }
     }
 
+    // loop, work and idle times of this thread, plus the last delta time
+    @CalledInAnyThread
+    public ThreadTimings getTimings() {
+        return timings;
+    }
+
     public G getGame() {
         return game;
     }
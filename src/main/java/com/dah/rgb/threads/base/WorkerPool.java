@@ -0,0 +1,149 @@
+package com.dah.rgb.threads.base;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.game.Game;
+import com.dah.rgb.utils.tracing.Tracing;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+// fixed-size pool for CPU-bound works, execute blocks while every worker is busy and tryExecute refuses,
+// so the submitting thread keeps ownership of the work order (priorities, deadlines)
+public class WorkerPool implements Executor, AutoCloseable {
+    private final int workers;
+    private final @Nullable ForkJoinPool pool;
+    private final @NotNull Semaphore permits;
+    private final @Nullable Runnable onWorkDone;
+
+    // workers == 0 runs every work on the submitting thread
+    public WorkerPool(@NotNull String name, int workers, @Nullable Runnable onWorkerStart, @Nullable Runnable onWorkerStop) {
+        this(name, workers, onWorkerStart, onWorkerStop, null);
+    }
+
+    // onWorkDone runs on the worker after each work, once its worker is free again,
+    // so a submitter that got refused by tryExecute can be woken up to retry
+    public WorkerPool(@NotNull String name, int workers, @Nullable Runnable onWorkerStart, @Nullable Runnable onWorkerStop,
+                      @Nullable Runnable onWorkDone) {
+        this.workers = Math.max(0, workers);
+        this.onWorkDone = onWorkDone;
+        this.permits = new Semaphore(Math.max(1, this.workers));
+        if(this.workers == 0) {
+            pool = null;
+            return;
+        }
+
+        pool = new ForkJoinPool(this.workers, forkJoinPool -> {
+            var worker = new ForkJoinWorkerThread(forkJoinPool) {
+                @Override
+                protected void onStart() {
+                    super.onStart();
+                    if(onWorkerStart != null) {
+                        onWorkerStart.run();
+                    }
+                }
+
+                @Override
+                protected void onTermination(Throwable exception) {
+                    if(onWorkerStop != null) {
+                        onWorkerStop.run();
+                    }
+                    super.onTermination(exception);
+                }
+            };
+            worker.setName(name + "-" + worker.getPoolIndex());
+            return worker;
+        }, (thread, ex) -> Game.logException(Level.SEVERE, thread.getName() + " threw an uncaught exception", ex), true);
+    }
+
+    @Override
+    @CalledInAnyThread
+    public void execute(@NotNull Runnable command) {
+        if(pool == null) {
+            command.run();
+            return;
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            // shutting down, don't leave the work (and whoever waits on it) hanging
+            Thread.currentThread().interrupt();
+            command.run();
+            return;
+        }
+
+        submit(pool, command);
+    }
+
+    // never blocks, returns false if every worker is busy
+    @CalledInAnyThread
+    public boolean tryExecute(@NotNull Runnable command) {
+        if(pool == null) {
+            command.run();
+            return true;
+        }
+        if(!permits.tryAcquire()) {
+            return false;
+        }
+
+        submit(pool, command);
+        return true;
+    }
+
+    // the caller holds a permit, released once the work is done
+    private void submit(@NotNull ForkJoinPool pool, @NotNull Runnable command) {
+        try {
+            pool.execute(() -> {
+                var spans = Tracing.currentBufferIfEnabled();
+                var span = spans == null? Tracing.NOT_TRACED : spans.begin();
+                try {
+                    command.run();
+                } finally {
+                    if(spans != null) {
+                        spans.end(span, command.getClass());
+                    }
+                    permits.release();
+                    if(onWorkDone != null) {
+                        onWorkDone.run();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @CalledInAnyThread
+    public int getWorkers() {
+        return workers;
+    }
+
+    @CalledInAnyThread
+    public int getActiveWorks() {
+        return pool == null? 0 : workers - permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        if(pool == null) {
+            return;
+        }
+        pool.shutdown();
+        try {
+            if(!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                Game.log(Level.WARNING, "Worker pool didn't finish its works in time, forcing shutdown");
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+    }
+}
@@ -5,30 +5,110 @@ import com.dah.rgb.annotations.CalledInAssetThread;
 import com.dah.rgb.annotations.CalledInMainThread;
 import com.dah.rgb.annotations.NotNull;
 import com.dah.rgb.audio.io.AudioSource;
+import com.dah.rgb.audio.io.PCMCache;
 import com.dah.rgb.audio.io.VorbisAudioSource;
 import com.dah.rgb.game.Game;
 import com.dah.rgb.threads.base.ExecutorThread;
+import com.dah.rgb.threads.base.WorkerPool;
+import com.dah.rgb.utils.AssetCache;
+import com.dah.rgb.utils.Config;
 import com.dah.rgb.utils.Image;
+import com.dah.rgb.utils.Ref;
 
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.PriorityQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
 public class AssetThread<G extends Game<G>> extends ExecutorThread<G> {
+    public static final int ASSET_WORKERS = Config.ASSET_WORKERS.get(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    public static final int ASSET_CACHE_BUDGET_MB = Config.ASSET_CACHE_BUDGET_MB.get(256);
+    public static final String PCM_CACHE_DIRECTORY = Config.PCM_CACHE_DIRECTORY.get(
+            Path.of(System.getProperty("user.home"), ".rgb", "pcm-cache").toString());
+    private final WorkerPool workers;
+    private final AssetCache cache;
+    private final PCMCache pcmCache;
+
+    // only touched by this thread
+    // loads picked while every worker was busy, handed out again as workers free up
+    private final PriorityQueue<PendingLoad> pendingLoads;
+    private long pendingSequence;
+
     @CalledInMainThread
     public AssetThread(G game) {
+        this(game, ASSET_WORKERS);
+    }
+
+    // numWorkers == 0 decodes everything on the asset thread itself
+    @CalledInMainThread
+    public AssetThread(G game, int numWorkers) {
         super(game, ExecutionPolicy.EXECUTE_AS_MUCH_AS_POSSIBLE, true);
+        // workers get the same OpenAL context treatment as every other GameThread
+        workers = new WorkerPool("AssetWorker", numWorkers,
+                () -> game.getAudioThread().makeContextCurrentIfPossible(),
+                () -> game.getAudioThread().makeContextNotCurrentIfPossible(),
+                this::signalWork);
+        pendingLoads = new PriorityQueue<>(Comparator.comparingInt((PendingLoad load) -> load.priority.ordinal())
+                .thenComparingDouble(PendingLoad::deadline)
+                .thenComparingLong(PendingLoad::sequence));
+        cache = new AssetCache(ASSET_CACHE_BUDGET_MB * 1024L * 1024L);
+        pcmCache = new PCMCache(Path.of(PCM_CACHE_DIRECTORY));
     }
 
     @CalledInAnyThread
     public <T> CompletableFuture<T> load(@NotNull Load<T> load) {
+        return load(load, Priority.NORMAL);
+    }
+
+    @CalledInAnyThread
+    public <T> CompletableFuture<T> load(@NotNull Load<T> load, @NotNull Priority priority) {
+        return load(load, priority, NO_DEADLINE);
+    }
+
+    // loads are ordered by priority and deadline on the asset thread, which then hands them to a free worker
+    // without ever waiting for one, loads that find every worker busy are kept until one is done
+    @CalledInAnyThread
+    public <T> CompletableFuture<T> load(@NotNull Load<T> load, @NotNull Priority priority, double deadline) {
+        var executor = executor(priority, deadline);
         return CompletableFuture.supplyAsync(() -> {
             try {
                 return load.load();
             } catch (Exception e) {
                 throw new CompletionException(e);
             }
-        }, this);
+        }, command -> executor.execute(() -> dispatch(command, priority, deadline)));
+    }
+
+    // CalledInTheThread
+    private void dispatch(@NotNull Runnable command, @NotNull Priority priority, double deadline) {
+        // behind the loads already waiting for a worker, unless it goes before them
+        pendingLoads.add(new PendingLoad(command, priority, deadline, pendingSequence++));
+        dispatchPendingLoads();
+    }
+
+    // CalledInTheThread
+    private void dispatchPendingLoads() {
+        PendingLoad pending;
+        while((pending = pendingLoads.peek()) != null && workers.tryExecute(pending.command)) {
+            pendingLoads.remove();
+        }
+    }
+
+    @Override
+    @CalledInAssetThread
+    public void loop() {
+        dispatchPendingLoads();
+        super.loop();
+    }
+
+    // pending loads only keep the thread awake while a worker is free to take them,
+    // otherwise the end of a load wakes it up
+    @Override
+    @CalledInAssetThread
+    protected boolean isIdle() {
+        return super.isIdle() && (pendingLoads.isEmpty() || workers.getActiveWorks() >= workers.getWorkers());
     }
 
     @CalledInAnyThread
@@ -36,13 +116,100 @@ public class AssetThread<G extends Game<G>> extends ExecutorThread<G> {
         return load(() -> Image.loadSTB(path));
     }
 
+    // the buffer must stay valid until the returned future completes
+    @CalledInAnyThread
+    public CompletableFuture<Image> loadImageSTB(@NotNull ByteBuffer encoded, @NotNull String name) {
+        return load(() -> Image.loadSTB(encoded, name));
+    }
+
     @CalledInAnyThread
     public CompletableFuture<AudioSource> loadAudioVorbisSTB(Path path) {
         return load(() -> AudioSource.loadVorbisSTB(path));
     }
 
+    // fully decoded PCM, read from the on-disk cache when the file hasn't changed since the last decode
+    @CalledInAnyThread
+    public CompletableFuture<AudioSource> loadAudioVorbisPCMCached(@NotNull Path path) {
+        return load(() -> pcmCache.loadVorbis(path));
+    }
+
+    // the buffer must outlive the returned source
+    @CalledInAnyThread
+    public CompletableFuture<AudioSource> loadAudioVorbisSTB(@NotNull ByteBuffer encoded, @NotNull String name) {
+        return load(() -> AudioSource.loadVorbisSTB(encoded, name));
+    }
+
+    // loads the image at most once while it stays cached, every call gets its own handle to close
+    @CalledInAnyThread
+    public CompletableFuture<Ref.Counted<Image>> loadImageSTBShared(@NotNull Path path) {
+        return cache.acquire(new AssetCache.Key(path, SharedLoad.IMAGE_STB), () -> loadImageSTB(path),
+                image -> image.data().capacity());
+    }
+
+    // the decoder position is shared too, so this is meant for fully decoded Sounds and not for streamed Musics
+    @CalledInAnyThread
+    public CompletableFuture<Ref.Counted<AudioSource>> loadAudioVorbisSTBShared(@NotNull Path path) {
+        return cache.acquire(new AssetCache.Key(path, SharedLoad.AUDIO_VORBIS_STB), () -> loadAudioVorbisSTB(path),
+                AudioSource::getMemoryFootprint);
+    }
+
+    @CalledInAnyThread
+    public AssetCache getCache() {
+        return cache;
+    }
+
+    @CalledInAnyThread
+    public PCMCache getPCMCache() {
+        return pcmCache;
+    }
+
+    // decoding runs on a worker, the upload is marshalled to the graphics thread
+    @CalledInAnyThread
+    public CompletableFuture<Integer> loadDefaultGLTextureSTB(@NotNull Path path) {
+        var graphicsThread = game.getGraphicsThread();
+        return loadImageSTB(path).thenCompose(image -> graphicsThread.createDefaultGLTexture(image)
+                .whenComplete((texture, ex) -> image.close()));
+    }
+
+    @CalledInAnyThread
+    public int getWorkerCount() {
+        return workers.getWorkers();
+    }
+
+    @CalledInAnyThread
+    public int getActiveWorkerCount() {
+        return workers.getActiveWorks();
+    }
+
+    // loads picked by the asset thread but still waiting for a worker, read racily, this is only a statistic
+    @CalledInAnyThread
+    public int getPendingLoadCount() {
+        return pendingLoads.size();
+    }
+
+    @Override
+    @CalledInAssetThread
+    public void closeInThread() throws Exception {
+        // blocking is fine now, whoever waits on these loads shouldn't hang
+        PendingLoad pending;
+        while((pending = pendingLoads.poll()) != null) {
+            workers.execute(pending.command);
+        }
+        workers.close();
+        cache.close();
+        super.closeInThread();
+    }
+
+    private enum SharedLoad {
+        IMAGE_STB,
+        AUDIO_VORBIS_STB
+    }
+
+    private record PendingLoad(@NotNull Runnable command, @NotNull Priority priority, double deadline, long sequence) {
+    }
+
     public interface Load<T> {
-        @CalledInAssetThread
+        // CalledInAnAssetWorker, or in the asset thread when there are no workers
         T load() throws Exception;
     }
 }
@@ -3,37 +3,99 @@ package com.dah.rgb.threads.impl;
 import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.CalledInAudioThread;
 import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.audio.Audio;
+import com.dah.rgb.audio.AudioCommandBuffer;
+import com.dah.rgb.audio.LoopbackRenderer;
+import com.dah.rgb.audio.MixerStream;
 import com.dah.rgb.audio.Music;
+import com.dah.rgb.audio.SoftwareMixer;
+import com.dah.rgb.audio.VoicePool;
 import com.dah.rgb.audio.io.AudioSource;
 import com.dah.rgb.game.Game;
 import com.dah.rgb.threads.base.ExecutorThread;
+import com.dah.rgb.threads.base.WorkerPool;
+import com.dah.rgb.utils.Config;
 import com.dah.rgb.utils.Ref;
 import org.lwjgl.openal.AL;
 import org.lwjgl.openal.ALC;
 import org.lwjgl.openal.ALCCapabilities;
 import org.lwjgl.openal.ALCapabilities;
+import org.lwjgl.system.MemoryStack;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 
 import static org.lwjgl.openal.ALC10.*;
 import static org.lwjgl.openal.EXTThreadLocalContext.alcSetThreadContext;
+import static org.lwjgl.openal.SOFTLoopback.alcLoopbackOpenDeviceSOFT;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
 public class AudioThread<G extends Game<G>> extends ExecutorThread<G> {
+    public static final int VOICE_POOL_SIZE = Config.VOICE_POOL_SIZE.get(64);
+    public static final int DECODER_WORKERS = Config.AUDIO_DECODER_WORKERS.get(1);
+    public static final int COMMAND_CAPACITY = Config.AUDIO_COMMAND_CAPACITY.get(1024);
+    private static final long COMMAND_BACKPRESSURE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    public static final int MIXER_RATE = Config.AUDIO_MIXER_RATE.get(48000);
+    public static final int MIXER_VOICES = Config.AUDIO_MIXER_VOICES.get(256);
+    // frames per mixer buffer, 480 frames is 10 ms at 48 kHz
+    public static final int MIXER_BLOCK = Config.AUDIO_MIXER_BLOCK.get(480);
+    public static final int MIXER_BUFFERS = Config.AUDIO_MIXER_BUFFERS.get(3);
+    // renders into a loopback device instead of playing, see LoopbackRenderer
+    public static final boolean LOOPBACK = Config.AUDIO_LOOPBACK.get(false);
+    public static final @Nullable String LOOPBACK_OUTPUT = Config.AUDIO_LOOPBACK_OUTPUT.get();
+    public static final int LOOPBACK_RATE = Config.AUDIO_LOOPBACK_RATE.get(48000);
+    // smaller than the stream and mixer queues, so a render never drains them
+    public static final int LOOPBACK_BLOCK = Config.AUDIO_LOOPBACK_BLOCK.get(512);
+    // paces rendering to the wall clock, e.g. to record gameplay
+    public static final boolean LOOPBACK_REALTIME = Config.AUDIO_LOOPBACK_REALTIME.get(false);
+    // seconds written to the loopback output at most, about 370 MiB at 48 kHz
+    public static final double LOOPBACK_MAX_OUTPUT = Config.AUDIO_LOOPBACK_MAX_OUTPUT.get(30.0 * 60.0);
+    // a non-realtime loopback keeps rendering this long once nothing plays, so stopped voices and the
+    // buffers a finished music left queued are rendered, then it sleeps like a device thread
+    private static final double LOOPBACK_IDLE_TAIL = 1000.0;
+    private static final int LOOPBACK_ONSET_THRESHOLD = 64;
+    // upper bound of a tick, so voices are still recycled while no music plays
+    public static final double MAX_SLEEP = Config.AUDIO_MAX_SLEEP.get(30.0);
+    // wake a bit after the buffer boundary, so OpenAL reports the buffer as processed
+    private static final double WAKEUP_MARGIN = 0.5;
     private final List<Music> musics;
+    private final @NotNull WorkerPool decoders;
+    private final @NotNull AudioCommandBuffer commands;
+    private final @NotNull AtomicLong commandBackpressureCount;
+    private final @NotNull SoftwareMixer mixer;
     private long device, context;
     private ALCCapabilities alc;
     private ALCapabilities al;
+    private VoicePool voicePool;
+    private MixerStream mixerStream;
+    private @Nullable LoopbackRenderer loopback;
+    private double loopbackStartTime;
+    // device time at which the last music or voice was seen playing
+    private double loopbackLastActiveTime;
+
+    private double wakeupTarget;
+    private volatile long underrunCount, lateWakeups, wakeups;
+    private volatile double lastWakeupLateness, maxWakeupLateness, totalWakeupLateness;
 
     public AudioThread(@NotNull G game) {
-        super(game, ExecutionPolicy.EXECUTE_ONE_PER_LOOP, false);
+        super(game, ExecutionPolicy.EXECUTE_AS_MUCH_AS_POSSIBLE, false);
         musics = Collections.synchronizedList(new ArrayList<>());
+        commands = new AudioCommandBuffer(COMMAND_CAPACITY);
+        commandBackpressureCount = new AtomicLong();
+        decoders = new WorkerPool("AudioDecoder", Math.max(1, DECODER_WORKERS), null, null);
+        // an idle mixer leaves its stream stopped, the first voice must not wait for MAX_SLEEP
+        mixer = new SoftwareMixer(MIXER_RATE, MIXER_VOICES, MIXER_BLOCK, this::wakeUp);
     }
 
     @CalledInAnyThread
@@ -45,36 +107,143 @@ public class AudioThread<G extends Game<G>> extends ExecutorThread<G> {
         }
     }
 
+    // queues a command for the next tick, see AudioCommandBuffer
+    // the audio thread itself applies it right away, as it did before the buffer existed
+    // doesn't allocate unless the buffer is full
+    @CalledInAnyThread
+    public void post(int opcode, @NotNull Audio target, int id, @Nullable CompletableFuture<?> completion) {
+        if(Thread.currentThread() == thread) {
+            AudioCommandBuffer.apply(opcode, target, id, completion);
+            return;
+        }
+        if(!commands.offer(opcode, target, id, completion)) {
+            commandBackpressureCount.incrementAndGet();
+            while(!commands.offer(opcode, target, id, completion)) {
+                wakeUp();
+                LockSupport.parkNanos(this, COMMAND_BACKPRESSURE_PARK_NANOS);
+            }
+        }
+        signalWork();
+    }
+
     @Override
     @CalledInAudioThread
     public boolean init() {
         int error;
-        device = alcOpenDevice((ByteBuffer) null);
+        if(LOOPBACK) {
+            if(!LoopbackRenderer.isSupported()) {
+                Game.log(Level.SEVERE, "OpenAL loopback devices (ALC_SOFT_loopback) aren't supported");
+                return false;
+            }
+            device = alcLoopbackOpenDeviceSOFT((ByteBuffer) null);
+        } else {
+            device = alcOpenDevice((ByteBuffer) null);
+        }
         if(device == NULL) {
             Game.log(Level.SEVERE, "Failed to open OpenAL device");
             return false;
         }
         alc = ALC.createCapabilities(device);
-        context = alcCreateContext(device, (IntBuffer) null);
+        if(LOOPBACK) {
+            if(!LoopbackRenderer.isFormatSupported(device, LOOPBACK_RATE)) {
+                Game.log(Level.SEVERE, "OpenAL loopback device can't render 16-bit stereo at " + LOOPBACK_RATE + " Hz");
+                return false;
+            }
+            try(var stack = MemoryStack.stackPush()) {
+                context = alcCreateContext(device, LoopbackRenderer.contextAttributes(stack.mallocInt(7), LOOPBACK_RATE));
+            }
+        } else {
+            context = alcCreateContext(device, (IntBuffer) null);
+        }
         if(context == NULL | (error = alcGetError(device)) != ALC_NO_ERROR) {
             Game.log(Level.SEVERE, "Failed to create OpenAL context: " + alc + ". Error code: " + error);
             return false;
         }
         alcMakeContextCurrent(context);
         al = AL.createCapabilities(alc);
+        voicePool = new VoicePool(VOICE_POOL_SIZE);
+        mixerStream = new MixerStream(mixer, MIXER_BUFFERS);
+        if(LOOPBACK) {
+            try {
+                loopback = new LoopbackRenderer(device, LOOPBACK_RATE, LOOPBACK_BLOCK,
+                        LOOPBACK_OUTPUT == null? null : Path.of(LOOPBACK_OUTPUT),
+                        (long) (LOOPBACK_MAX_OUTPUT * LOOPBACK_RATE), LOOPBACK_ONSET_THRESHOLD);
+            } catch (IOException e) {
+                Game.logException(Level.SEVERE, "Failed to open the loopback output '" + LOOPBACK_OUTPUT + "'", e);
+                return false;
+            }
+            loopbackStartTime = Game.getCurrentTime();
+        }
         return true;
     }
 
     @Override
     @CalledInAudioThread
     public void loop() {
+        recordWakeup();
+        // commands first, so a close queued after them finds its audio in the state they left it
+        commands.applyAll();
         super.loop();
         musics.removeIf(music -> !music.update());
-        try {
-            Thread.sleep(30);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            Game.logException(Level.INFO, thread.getName() + " was interrupted", e);
+        voicePool.update();
+        if(mixerStream.update()) {
+            reportUnderrun();
+        }
+        var rendering = loopback != null && (LOOPBACK_REALTIME || isLoopbackBusy());
+        if(rendering) {
+            // the device only advances when we render, the next loop refills what this block consumed
+            loopback.render();
+            if(!LOOPBACK_REALTIME) {
+                return;
+            }
+        }
+
+        var now = Game.getCurrentTime();
+        double target;
+        if(rendering) {
+            // refill deadlines don't apply to a device we pull from, only the next block does
+            target = loopbackStartTime + loopback.getRenderedTime();
+        } else {
+            // sleep until the first music needs a refill, submitted works wake us up earlier
+            target = Math.min(now + MAX_SLEEP, mixerStream.getRefillTime() + WAKEUP_MARGIN);
+            synchronized (musics) {
+                for(var music : musics) {
+                    target = Math.min(target, music.getRefillTime() + WAKEUP_MARGIN);
+                }
+            }
+        }
+        wakeupTarget = target;
+        if(target > now) {
+            awaitWorks(Math.max(1, (long) ((target - now) * 1e6)));
+        }
+    }
+
+    @Override
+    protected boolean isIdle() {
+        return super.isIdle() && commands.isEmpty();
+    }
+
+    // rendering as fast as possible while nothing plays would only write silence
+    private boolean isLoopbackBusy() {
+        var renderedTime = loopback.getRenderedTime();
+        if(!musics.isEmpty() || mixer.getActiveVoices() > 0 || voicePool.getBusyVoices() > 0) {
+            loopbackLastActiveTime = renderedTime;
+            return true;
+        }
+        return renderedTime - loopbackLastActiveTime < LOOPBACK_IDLE_TAIL;
+    }
+
+    private void recordWakeup() {
+        if(wakeupTarget == 0) {
+            return;
+        }
+        var lateness = Game.getCurrentTime() - wakeupTarget;
+        wakeups++;
+        if(lateness > 0) {
+            lateWakeups++;
+            lastWakeupLateness = lateness;
+            totalWakeupLateness += lateness;
+            maxWakeupLateness = Math.max(maxWakeupLateness, lateness);
         }
     }
 
@@ -82,6 +251,10 @@ public class AudioThread<G extends Game<G>> extends ExecutorThread<G> {
     @CalledInAudioThread
     public void closeInThread() throws Exception {
         super.closeInThread();
+        decoders.close();
+        if(voicePool != null) voicePool.close();
+        if(mixerStream != null) mixerStream.close();
+        if(loopback != null) loopback.close();
         alcSetThreadContext(NULL);
         alcMakeContextCurrent(NULL);
         if(context != NULL) alcDestroyContext(context);
@@ -98,6 +271,86 @@ public class AudioThread<G extends Game<G>> extends ExecutorThread<G> {
         return al;
     }
 
+    // decode-ahead workers of streamed musics
+    @CalledInAnyThread
+    public @NotNull WorkerPool getDecoders() {
+        return decoders;
+    }
+
+    @CalledInAnyThread
+    public VoicePool getVoicePool() {
+        return voicePool;
+    }
+
+    // mixes hit sounds into one streaming source, see SoftwareMixer
+    @CalledInAnyThread
+    public @NotNull SoftwareMixer getMixer() {
+        return mixer;
+    }
+
+    @CalledInAnyThread
+    public MixerStream getMixerStream() {
+        return mixerStream;
+    }
+
+    // null unless the thread renders into a loopback device
+    @CalledInAnyThread
+    public @Nullable LoopbackRenderer getLoopback() {
+        return loopback;
+    }
+
+    @CalledInAnyThread
+    public @NotNull AudioCommandBuffer getCommands() {
+        return commands;
+    }
+
+    // number of posts that found the command buffer full
+    @CalledInAnyThread
+    public long getCommandBackpressureCount() {
+        return commandBackpressureCount.get();
+    }
+
+    // the audio thread is the only writer, so the volatile increment doesn't need to be atomic
+    @CalledInAudioThread
+    public void reportUnderrun() {
+        underrunCount++;
+    }
+
+    // number of times a music ran out of queued buffers before being refilled
+    @CalledInAnyThread
+    public long getUnderrunCount() {
+        return underrunCount;
+    }
+
+    // number of loops, a loop started by a submitted work counts too
+    @CalledInAnyThread
+    public long getWakeupCount() {
+        return wakeups;
+    }
+
+    // number of loops which started after their refill deadline
+    @CalledInAnyThread
+    public long getLateWakeupCount() {
+        return lateWakeups;
+    }
+
+    // in milliseconds, only late wakeups are accounted
+    @CalledInAnyThread
+    public double getLastWakeupLateness() {
+        return lastWakeupLateness;
+    }
+
+    @CalledInAnyThread
+    public double getMaxWakeupLateness() {
+        return maxWakeupLateness;
+    }
+
+    @CalledInAnyThread
+    public double getAverageWakeupLateness() {
+        var late = lateWakeups;
+        return late == 0? 0.0 : totalWakeupLateness / late;
+    }
+
     @Override
     protected String threadName() {
         return "AudioThread";
@@ -105,7 +358,9 @@ public class AudioThread<G extends Game<G>> extends ExecutorThread<G> {
 
     @CalledInAnyThread
     public boolean supportsThreadLocalContext() {
-        return alc.ALC_EXT_thread_local_context;
+        // null until the audio thread is initialized, or in a game whose audio thread never starts
+        var alc = this.alc;
+        return alc != null && alc.ALC_EXT_thread_local_context;
     }
 
     @CalledInAnyThread
@@ -156,6 +411,8 @@ public class AudioThread<G extends Game<G>> extends ExecutorThread<G> {
 
     public void addMusicToUpdateList(Music music) {
         musics.add(music);
+        // the running loop may be sleeping for MAX_SLEEP
+        wakeUp();
     }
 
     public void removeMusicFromUpdateList(Music music) {
@@ -26,7 +26,7 @@ public class GraphicsThread<G extends Game<G>> extends ExecutorThread<G> {
     private GLCapabilities gl;
 
     public GraphicsThread(@NotNull G game) {
-        super(game, ExecutionPolicy.EXECUTE_ONE_PER_LOOP, false);
+        super(game, ExecutionPolicy.EXECUTE_WITHIN_TIME_BUDGET, false);
         waitForVSync = new Phaser() {
             @Override
             protected boolean onAdvance(int phase, int registeredParties) {
@@ -127,8 +127,13 @@ public class GraphicsThread<G extends Game<G>> extends ExecutorThread<G> {
     @Override
     public void loop() {
         super.loop();
+        var spans = spans();
+        var span = spans.begin();
         game.render();
+        spans.end(span, "render");
+        span = spans.begin();
         signalVSync();
+        spans.end(span, "signalVSync");
     }
 
     @Override
@@ -161,10 +166,26 @@ public class GraphicsThread<G extends Game<G>> extends ExecutorThread<G> {
     }
 
     public @NotNull CompletableFuture<@NotNull Integer> createGLTexture(@NotNull Image image) {
-        return CompletableFuture.supplyAsync(() -> createGLTextureGraphics(image), this);
+        return createGLTexture(image, Priority.NORMAL);
+    }
+
+    public @NotNull CompletableFuture<@NotNull Integer> createGLTexture(@NotNull Image image, @NotNull Priority priority) {
+        return createGLTexture(image, priority, NO_DEADLINE);
+    }
+
+    public @NotNull CompletableFuture<@NotNull Integer> createGLTexture(@NotNull Image image, @NotNull Priority priority, double deadline) {
+        return CompletableFuture.supplyAsync(() -> createGLTextureGraphics(image), executor(priority, deadline));
     }
 
     public @NotNull CompletableFuture<@NotNull Integer> createDefaultGLTexture(@NotNull Image image) {
-        return CompletableFuture.supplyAsync(() -> createDefaultGLTextureGraphics(image), this);
+        return createDefaultGLTexture(image, Priority.NORMAL);
+    }
+
+    public @NotNull CompletableFuture<@NotNull Integer> createDefaultGLTexture(@NotNull Image image, @NotNull Priority priority) {
+        return createDefaultGLTexture(image, priority, NO_DEADLINE);
+    }
+
+    public @NotNull CompletableFuture<@NotNull Integer> createDefaultGLTexture(@NotNull Image image, @NotNull Priority priority, double deadline) {
+        return CompletableFuture.supplyAsync(() -> createDefaultGLTextureGraphics(image), executor(priority, deadline));
     }
 }
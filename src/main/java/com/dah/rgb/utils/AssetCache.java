@@ -0,0 +1,213 @@
+package com.dah.rgb.utils;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.game.Game;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+
+// deduplicates loaded assets by path and load parameters
+// every acquire hands out its own Ref.Counted handle, values nobody holds are kept until
+// the byte budget is exceeded and are then evicted least recently used first
+public class AssetCache implements AutoCloseable {
+    private final long byteBudget;
+    // access ordered, so iteration starts at the least recently used entry
+    private final @NotNull LinkedHashMap<@NotNull Key, @NotNull Entry<?>> entries;
+    private long cachedBytes;
+    private long hitCount, missCount, evictionCount;
+
+    public AssetCache(long byteBudget) {
+        this.byteBudget = byteBudget;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @CalledInAnyThread
+    @SuppressWarnings("unchecked")
+    public <T extends AutoCloseable> @NotNull CompletableFuture<Ref.@NotNull Counted<T>> acquire(
+            @NotNull Key key, @NotNull Supplier<@NotNull CompletableFuture<T>> loader, @NotNull ToLongFunction<T> weigher) {
+        Entry<T> entry;
+        boolean load = false;
+        synchronized (this) {
+            entry = (Entry<T>) entries.get(key);
+            if(entry == null) {
+                // the new entry starts with our reference
+                entry = new Entry<>(key);
+                entries.put(key, entry);
+                missCount++;
+                load = true;
+            } else {
+                // retained under the lock, so the entry can't be evicted in between
+                entry.retain();
+                hitCount++;
+            }
+        }
+
+        if(load) {
+            var loading = entry;
+            CompletableFuture<T> future;
+            try {
+                future = loader.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, ex) -> onLoaded(loading, value, ex, weigher));
+        }
+
+        var acquired = entry;
+        var result = new CompletableFuture<Ref.Counted<T>>();
+        entry.future.whenComplete((value, ex) -> {
+            if(ex != null) {
+                result.completeExceptionally(ex);
+                return;
+            }
+            var ref = new Ref.Counted<>(value, acquired);
+            if(!result.complete(ref)) {
+                // cancelled by the caller, give our reference back
+                ref.close();
+            }
+        });
+        return result;
+    }
+
+    private <T extends AutoCloseable> void onLoaded(@NotNull Entry<T> entry, @Nullable T value, @Nullable Throwable ex,
+                                                    @NotNull ToLongFunction<T> weigher) {
+        if(ex != null || value == null) {
+            // don't cache failures, the next acquire tries again
+            synchronized (this) {
+                entries.remove(entry.key, entry);
+            }
+            entry.future.completeExceptionally(ex != null? ex : new NullPointerException("Loader of " + entry.key + " returned null"));
+            return;
+        }
+        synchronized (this) {
+            entry.value = value;
+            entry.bytes = Math.max(0, weigher.applyAsLong(value));
+            cachedBytes += entry.bytes;
+            trim();
+        }
+        // completed outside the lock, dependents may run arbitrary code
+        entry.future.complete(value);
+    }
+
+    private synchronized void onUnreferenced(@NotNull Entry<?> entry) {
+        if(entry.getReferences() == 0 && entry.value != null) {
+            trim();
+        }
+    }
+
+    // CalledWithLock
+    private void trim() {
+        if(cachedBytes <= byteBudget) {
+            return;
+        }
+        List<Entry<?>> evicted = new ArrayList<>();
+        var iterator = entries.values().iterator();
+        while(cachedBytes > byteBudget && iterator.hasNext()) {
+            var entry = iterator.next();
+            if(entry.value != null && entry.getReferences() == 0) {
+                iterator.remove();
+                cachedBytes -= entry.bytes;
+                evictionCount++;
+                evicted.add(entry);
+            }
+        }
+        evicted.forEach(Entry::closeValue);
+    }
+
+    // drops every value that nobody holds, whatever the budget
+    @CalledInAnyThread
+    public synchronized void evictUnreferenced() {
+        var iterator = entries.values().iterator();
+        while(iterator.hasNext()) {
+            var entry = iterator.next();
+            if(entry.value != null && entry.getReferences() == 0) {
+                iterator.remove();
+                cachedBytes -= entry.bytes;
+                evictionCount++;
+                entry.closeValue();
+            }
+        }
+    }
+
+    @CalledInAnyThread
+    public long getByteBudget() {
+        return byteBudget;
+    }
+
+    @CalledInAnyThread
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    @CalledInAnyThread
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    @CalledInAnyThread
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    @CalledInAnyThread
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @CalledInAnyThread
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    // values still referenced are leaked on purpose, their holders may still be using them
+    @Override
+    public synchronized void close() {
+        evictUnreferenced();
+        if(!entries.isEmpty()) {
+            Game.log(Level.WARNING, entries.size() + " cached assets are still referenced while closing the cache");
+        }
+    }
+
+    // parameters must implement equals/hashCode, e.g. a record or an enum
+    public record Key(@NotNull Path path, @NotNull Object parameters) {
+        public Key {
+            path = path.toAbsolutePath().normalize();
+        }
+    }
+
+    private final class Entry<T extends AutoCloseable> extends Ref.ReferenceCount {
+        private final @NotNull Key key;
+        private final @NotNull CompletableFuture<T> future;
+        private volatile @Nullable T value;
+        private long bytes;
+
+        private Entry(@NotNull Key key) {
+            this.key = key;
+            this.future = new CompletableFuture<>();
+        }
+
+        @Override
+        protected void onUnreferenced() {
+            AssetCache.this.onUnreferenced(this);
+        }
+
+        private void closeValue() {
+            var value = this.value;
+            if(value != null) {
+                try {
+                    value.close();
+                } catch (Exception e) {
+                    Game.logException(Level.WARNING, "Unable to close cached asset " + key, e);
+                }
+            }
+        }
+    }
+}
@@ -10,9 +10,45 @@ public class Config<T> {
     public static final @NotNull Config<Boolean> LOG_LWJGL_MESSAGE = new Config<>("com.dah.rgb.LogLWJGLMessages", StateInit.BOOLEAN);
     public static final @NotNull Config<Integer> LWJGL_LOG_NUM_FRAME_SKIPPED = new Config<>("com.dah.rgb.LWJGLLogNumFrameSkipped", StateInit.INT);
     public static final @NotNull Config<Boolean> LWJGL_DEBUG = new Config<>("com.dah.rgb.LWJGLDebug", StateInit.BOOLEAN);
+    public static final @NotNull Config<Boolean> LOG_ASYNC = new Config<>("com.dah.rgb.LogAsync", StateInit.BOOLEAN);
+    public static final @NotNull Config<Integer> LOG_QUEUE_CAPACITY = new Config<>("com.dah.rgb.LogQueueCapacity", StateInit.INT);
+    public static final @NotNull Config<String> LOG_CALLER_LEVEL = new Config<>("com.dah.rgb.LogCallerLevel", StateInit.STRING);
+    public static final @NotNull Config<Double> LOG_FLUSH_INTERVAL = new Config<>("com.dah.rgb.LogFlushInterval", StateInit.DOUBLE);
+    public static final @NotNull Config<Boolean> TRACE = new Config<>("com.dah.rgb.Trace", StateInit.BOOLEAN);
+    public static final @NotNull Config<Integer> TRACE_BUFFER_CAPACITY = new Config<>("com.dah.rgb.TraceBufferCapacity", StateInit.INT);
     public static final @NotNull Config<Boolean> GL_DEBUG_CALLBACK = new Config<>("com.dah.rgb.GLDebugCallback", StateInit.BOOLEAN);
     public static final @NotNull Config<Integer> STREAM_BUFFER_SIZE = new Config<>("com.dah.rgb.StreamBufferSize", StateInit.INT);
     public static final @NotNull Config<Integer> STREAM_NUM_BUFFERS = new Config<>("com.dah.rgb.StreamNumBuffers", StateInit.INT);
+    public static final @NotNull Config<Integer> STREAM_DECODE_AHEAD = new Config<>("com.dah.rgb.StreamDecodeAhead", StateInit.INT);
+    public static final @NotNull Config<Integer> AUDIO_DECODER_WORKERS = new Config<>("com.dah.rgb.AudioDecoderWorkers", StateInit.INT);
+    public static final @NotNull Config<Integer> EXECUTOR_QUEUE_CAPACITY = new Config<>("com.dah.rgb.ExecutorQueueCapacity", StateInit.INT);
+    public static final @NotNull Config<Double> FRAME_WORK_TIME_BUDGET = new Config<>("com.dah.rgb.FrameWorkTimeBudget", StateInit.DOUBLE);
+    public static final @NotNull Config<Double> DEADLINE_URGENCY_WINDOW = new Config<>("com.dah.rgb.DeadlineUrgencyWindow", StateInit.DOUBLE);
+    public static final @NotNull Config<Double> TICK_RATE = new Config<>("com.dah.rgb.TickRate", StateInit.DOUBLE);
+    public static final @NotNull Config<Integer> MAX_TICKS_PER_FRAME = new Config<>("com.dah.rgb.MaxTicksPerFrame", StateInit.INT);
+    public static final @NotNull Config<Boolean> LOW_POWER = new Config<>("com.dah.rgb.LowPower", StateInit.BOOLEAN);
+    public static final @NotNull Config<Integer> INPUT_QUEUE_CAPACITY = new Config<>("com.dah.rgb.InputQueueCapacity", StateInit.INT);
+    public static final @NotNull Config<Boolean> INPUT_THREAD = new Config<>("com.dah.rgb.InputThread", StateInit.BOOLEAN);
+    public static final @NotNull Config<Double> INPUT_POLL_RATE = new Config<>("com.dah.rgb.InputPollRate", StateInit.DOUBLE);
+    public static final @NotNull Config<Integer> STARVATION_LIMIT = new Config<>("com.dah.rgb.StarvationLimit", StateInit.INT);
+    public static final @NotNull Config<Integer> ASSET_WORKERS = new Config<>("com.dah.rgb.AssetWorkers", StateInit.INT);
+    public static final @NotNull Config<Boolean> PARALLEL_SCENE_UPDATE = new Config<>("com.dah.rgb.ParallelSceneUpdate", StateInit.BOOLEAN);
+    public static final @NotNull Config<Integer> SCENE_UPDATE_WORKERS = new Config<>("com.dah.rgb.SceneUpdateWorkers", StateInit.INT);
+    public static final @NotNull Config<Integer> ASSET_CACHE_BUDGET_MB = new Config<>("com.dah.rgb.AssetCacheBudgetMB", StateInit.INT);
+    public static final @NotNull Config<String> PCM_CACHE_DIRECTORY = new Config<>("com.dah.rgb.PCMCacheDirectory", StateInit.STRING);
+    public static final @NotNull Config<Integer> VOICE_POOL_SIZE = new Config<>("com.dah.rgb.VoicePoolSize", StateInit.INT);
+    public static final @NotNull Config<Double> AUDIO_MAX_SLEEP = new Config<>("com.dah.rgb.AudioMaxSleep", StateInit.DOUBLE);
+    public static final @NotNull Config<Integer> AUDIO_COMMAND_CAPACITY = new Config<>("com.dah.rgb.AudioCommandCapacity", StateInit.INT);
+    public static final @NotNull Config<Integer> AUDIO_MIXER_RATE = new Config<>("com.dah.rgb.AudioMixerRate", StateInit.INT);
+    public static final @NotNull Config<Integer> AUDIO_MIXER_VOICES = new Config<>("com.dah.rgb.AudioMixerVoices", StateInit.INT);
+    public static final @NotNull Config<Integer> AUDIO_MIXER_BLOCK = new Config<>("com.dah.rgb.AudioMixerBlock", StateInit.INT);
+    public static final @NotNull Config<Integer> AUDIO_MIXER_BUFFERS = new Config<>("com.dah.rgb.AudioMixerBuffers", StateInit.INT);
+    public static final @NotNull Config<Boolean> AUDIO_LOOPBACK = new Config<>("com.dah.rgb.AudioLoopback", StateInit.BOOLEAN);
+    public static final @NotNull Config<String> AUDIO_LOOPBACK_OUTPUT = new Config<>("com.dah.rgb.AudioLoopbackOutput", StateInit.STRING);
+    public static final @NotNull Config<Integer> AUDIO_LOOPBACK_RATE = new Config<>("com.dah.rgb.AudioLoopbackRate", StateInit.INT);
+    public static final @NotNull Config<Integer> AUDIO_LOOPBACK_BLOCK = new Config<>("com.dah.rgb.AudioLoopbackBlock", StateInit.INT);
+    public static final @NotNull Config<Boolean> AUDIO_LOOPBACK_REALTIME = new Config<>("com.dah.rgb.AudioLoopbackRealtime", StateInit.BOOLEAN);
+    public static final @NotNull Config<Double> AUDIO_LOOPBACK_MAX_OUTPUT = new Config<>("com.dah.rgb.AudioLoopbackMaxOutput", StateInit.DOUBLE);
 
     private interface StateInit<T> extends Function<String, @Nullable T> {
         Config.StateInit<Boolean> BOOLEAN = property -> {
@@ -22,6 +58,11 @@ public class Config<T> {
 
         Config.StateInit<Integer> INT = Integer::getInteger;
 
+        Config.StateInit<Double> DOUBLE = property -> {
+            String value = System.getProperty(property);
+            return value == null ? null : Double.parseDouble(value);
+        };
+
         Config.StateInit<String> STRING = System::getProperty;
     }
 
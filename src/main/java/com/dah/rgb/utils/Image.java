@@ -17,16 +17,23 @@ public record Image(@NotNull Dimension size, boolean hasAlpha, @NotNull ByteBuff
         memFree(data);
     }
 
+    // maps the file once and probes + decodes from the same mapping
     @CalledInAssetThread
     public static Image loadSTB(@NotNull Path path) throws IOException {
+        return loadSTB(MappedFiles.mapReadOnly(path), path.toString());
+    }
+
+    // encoded must be a direct buffer (e.g. a mapped file or an archive entry), name is only used in error messages
+    @CalledInAssetThread
+    public static Image loadSTB(@NotNull ByteBuffer encoded, @NotNull String name) throws IOException {
         try(var stack = MemoryStack.stackPush()) {
             var pWidth = stack.mallocInt(1);
             var pHeight = stack.mallocInt(1);
             var pComps = stack.mallocInt(1);
 
-            var loadSuccess = stbi_info(path.toString(), pWidth, pHeight, pComps);
+            var loadSuccess = stbi_info_from_memory(encoded, pWidth, pHeight, pComps);
             if(!loadSuccess) {
-                throw new IOException("Unable to load image '" + path + "': " + stbi_failure_reason());
+                throw new IOException("Unable to load image '" + name + "': " + stbi_failure_reason());
             }
             int comps = pComps.get(0);
             if(comps < STBI_rgb) {
@@ -35,9 +42,9 @@ public record Image(@NotNull Dimension size, boolean hasAlpha, @NotNull ByteBuff
                 comps += 2;
             }
 
-            var data = stbi_load(path.toString(), pWidth, pHeight, pComps, comps);
+            var data = stbi_load_from_memory(encoded, pWidth, pHeight, pComps, comps);
             if(data == null) {
-                throw new IOException("Unable to load image '" + path + "': " + stbi_failure_reason());
+                throw new IOException("Unable to load image '" + name + "': " + stbi_failure_reason());
             }
 
             return new Image(new Dimension(pWidth.get(), pHeight.get()), comps == STBI_rgb_alpha, data);
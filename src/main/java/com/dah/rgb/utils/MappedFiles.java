@@ -0,0 +1,23 @@
+package com.dah.rgb.utils;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class MappedFiles {
+    private MappedFiles() {
+    }
+
+    // the mapping is direct memory which outlives the channel, it is released once the buffer is garbage collected
+    @CalledInAnyThread
+    public static @NotNull MappedByteBuffer mapReadOnly(@NotNull Path path) throws IOException {
+        try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
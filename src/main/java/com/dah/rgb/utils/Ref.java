@@ -1,11 +1,14 @@
 package com.dah.rgb.utils;
 
+import com.dah.rgb.annotations.CalledInAnyThread;
 import com.dah.rgb.annotations.NotNull;
 import com.dah.rgb.game.Game;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
-public abstract sealed class Ref<T extends AutoCloseable> permits Ref.Shared, Ref.Own {
+public abstract sealed class Ref<T extends AutoCloseable> permits Ref.Shared, Ref.Own, Ref.Counted {
     protected final @NotNull T value;
 
     public Ref(@NotNull T value) {
@@ -18,6 +21,24 @@ public abstract sealed class Ref<T extends AutoCloseable> permits Ref.Shared, Re
 
     public abstract void close();
 
+    // a reference counted value which closes itself once every handle is closed
+    public static <T extends AutoCloseable> @NotNull Counted<T> counted(@NotNull T value) {
+        return new Counted<>(value, new ReferenceCount() {
+            @Override
+            protected void onUnreferenced() {
+                closeValue(value);
+            }
+        });
+    }
+
+    private static void closeValue(@NotNull AutoCloseable value) {
+        try {
+            value.close();
+        } catch (Exception e) {
+            Game.logException(Level.WARNING, "Unable to close resource: " + value, e);
+        }
+    }
+
     public static final class Shared<T extends AutoCloseable> extends Ref<T> {
         public Shared(@NotNull T value) {
             super(value);
@@ -36,11 +57,66 @@ public abstract sealed class Ref<T extends AutoCloseable> permits Ref.Shared, Re
 
         @Override
         public void close() {
-            try {
-                value.close();
-            } catch (Exception e) {
-                Game.logException(Level.WARNING, "Unable to close resource: " + value, e);
+            closeValue(value);
+        }
+    }
+
+    // one handle to a reference counted value, every handle must be closed exactly once
+    public static final class Counted<T extends AutoCloseable> extends Ref<T> {
+        private final @NotNull ReferenceCount count;
+        private final @NotNull AtomicBoolean released;
+
+        // takes over one reference which has already been retained on count
+        public Counted(@NotNull T value, @NotNull ReferenceCount count) {
+            super(value);
+            this.count = count;
+            this.released = new AtomicBoolean();
+        }
+
+        @CalledInAnyThread
+        public @NotNull Counted<T> share() {
+            if(released.get()) {
+                throw new IllegalStateException("Sharing a closed reference to " + value);
+            }
+            count.retain();
+            return new Counted<>(value, count);
+        }
+
+        @Override
+        @CalledInAnyThread
+        public void close() {
+            if(released.compareAndSet(false, true)) {
+                count.release();
             }
         }
     }
+
+    public static abstract class ReferenceCount {
+        private final @NotNull AtomicInteger references;
+
+        // starts with one reference
+        public ReferenceCount() {
+            references = new AtomicInteger(1);
+        }
+
+        @CalledInAnyThread
+        public void retain() {
+            references.incrementAndGet();
+        }
+
+        @CalledInAnyThread
+        public void release() {
+            if(references.decrementAndGet() == 0) {
+                onUnreferenced();
+            }
+        }
+
+        @CalledInAnyThread
+        public int getReferences() {
+            return references.get();
+        }
+
+        @CalledInAnyThread
+        protected abstract void onUnreferenced();
+    }
 }
@@ -0,0 +1,108 @@
+package com.dah.rgb.utils.concurrent;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// bounded multi-producer/single-consumer ring buffer (vyukov-style sequenced slots)
+// offer/poll never allocate, poll/drain must only be called from one consumer thread
+public class MpscRingQueue<E> {
+    private final int capacity, mask;
+    private final @NotNull AtomicReferenceArray<E> elements;
+    private final @NotNull AtomicLongArray sequences;
+    private final @NotNull AtomicLong producerIndex;
+    private volatile long consumerIndex;
+
+    public MpscRingQueue(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = ceilPowerOfTwo(capacity);
+        this.mask = this.capacity - 1;
+        this.elements = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for(int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.producerIndex = new AtomicLong();
+    }
+
+    private static int ceilPowerOfTwo(int value) {
+        return value <= 1? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    @CalledInAnyThread
+    public boolean offer(@NotNull E element) {
+        long index;
+        int slot;
+        while(true) {
+            index = producerIndex.get();
+            slot = (int) index & mask;
+            var diff = sequences.get(slot) - index;
+            if(diff == 0) {
+                if(producerIndex.compareAndSet(index, index + 1)) {
+                    break;
+                }
+            } else if(diff < 0) {
+                // the consumer hasn't freed this slot yet
+                return false;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        elements.setPlain(slot, element);
+        // volatile store publishes the element to the consumer
+        sequences.set(slot, index + 1);
+        return true;
+    }
+
+    // ConsumerThreadOnly
+    public @Nullable E poll() {
+        var index = consumerIndex;
+        var slot = (int) index & mask;
+        if(sequences.get(slot) != index + 1) {
+            return null;
+        }
+        var element = elements.getPlain(slot);
+        elements.setPlain(slot, null);
+        sequences.set(slot, index + capacity);
+        consumerIndex = index + 1;
+        return element;
+    }
+
+    // ConsumerThreadOnly
+    public int drain(@NotNull Consumer<? super E> consumer, int limit) {
+        int drained = 0;
+        while(drained < limit) {
+            var element = poll();
+            if(element == null) {
+                break;
+            }
+            drained++;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+
+    @CalledInAnyThread
+    public int size() {
+        // claimed-but-unpublished slots count as queued
+        var size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @CalledInAnyThread
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @CalledInAnyThread
+    public int capacity() {
+        return capacity;
+    }
+}
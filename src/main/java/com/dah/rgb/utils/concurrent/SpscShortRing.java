@@ -0,0 +1,110 @@
+package com.dah.rgb.utils.concurrent;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+// bounded single-producer/single-consumer ring of shorts in native memory
+// write must only be called from one producer thread, read/skipTo from one consumer thread
+// indices grow forever, the slot of an index is index & mask
+public class SpscShortRing implements AutoCloseable {
+    private final int capacity, mask;
+    private final @NotNull ShortBuffer buffer;
+    private final long address;
+    // lazySet is enough to publish, the other side reads them with a volatile load
+    private final @NotNull AtomicLong writeIndex, readIndex;
+
+    public SpscShortRing(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity <= 1? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = memAllocShort(this.capacity);
+        this.address = memAddress(buffer);
+        this.writeIndex = new AtomicLong();
+        this.readIndex = new AtomicLong();
+    }
+
+    // copies as much of src as fits, returns the number of shorts written
+    // ProducerThreadOnly
+    public int write(@NotNull ShortBuffer src) {
+        var write = writeIndex.get();
+        var count = (int) Math.min(src.remaining(), capacity - (write - readIndex.get()));
+        if(count <= 0) {
+            return 0;
+        }
+        var slot = (int) write & mask;
+        var first = Math.min(count, capacity - slot);
+        var from = memAddress(src);
+        memCopy(from, address + ((long) slot << 1), (long) first << 1);
+        memCopy(from + ((long) first << 1), address, (long) (count - first) << 1);
+        src.position(src.position() + count);
+        writeIndex.lazySet(write + count);
+        return count;
+    }
+
+    // copies up to dst.remaining() shorts into dst, returns the number of shorts read
+    // ConsumerThreadOnly
+    public int read(@NotNull ShortBuffer dst) {
+        var read = readIndex.get();
+        var count = (int) Math.min(dst.remaining(), writeIndex.get() - read);
+        if(count <= 0) {
+            return 0;
+        }
+        var slot = (int) read & mask;
+        var first = Math.min(count, capacity - slot);
+        var to = memAddress(dst);
+        memCopy(address + ((long) slot << 1), to, (long) first << 1);
+        memCopy(address, to + ((long) first << 1), (long) (count - first) << 1);
+        dst.position(dst.position() + count);
+        readIndex.lazySet(read + count);
+        return count;
+    }
+
+    // drops everything written before index
+    // ConsumerThreadOnly
+    public void skipTo(long index) {
+        var read = readIndex.get();
+        var target = Math.min(index, writeIndex.get());
+        if(target > read) {
+            readIndex.lazySet(target);
+        }
+    }
+
+    @CalledInAnyThread
+    public long getWriteIndex() {
+        return writeIndex.get();
+    }
+
+    @CalledInAnyThread
+    public long getReadIndex() {
+        return readIndex.get();
+    }
+
+    @CalledInAnyThread
+    public int size() {
+        var size = writeIndex.get() - readIndex.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @CalledInAnyThread
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @CalledInAnyThread
+    public int capacity() {
+        return capacity;
+    }
+
+    // neither side may use the ring anymore
+    @Override
+    public void close() {
+        memFree(buffer);
+    }
+}
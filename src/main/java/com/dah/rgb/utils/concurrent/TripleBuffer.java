@@ -0,0 +1,107 @@
+package com.dah.rgb.utils.concurrent;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// lock-free handoff of whole frames from one writer (update) to one reader (render) through three reused buffers:
+// the writer fills the back buffer and publish() swaps it with the middle one, the reader's acquire() swaps
+// the middle one with its front buffer if a newer frame was published, neither side ever waits for the other
+// a frame published over one the reader never took counts as dropped, an acquire without a new frame as repeated
+// the reader only ever sees the newest frame, the writer can carry values of the frame it published last
+// into the next one (see getLastPublished), e.g. the previous positions render interpolates from
+public class TripleBuffer<T> {
+    private static final int INDEX_MASK = 0b11;
+    // set in middle when it holds a frame the reader hasn't taken yet
+    private static final int DIRTY = 0b100;
+
+    private final T[] buffers;
+    // sequence number of the frame in each buffer, 0 for none
+    private final long[] sequences;
+    private final @NotNull AtomicInteger middle;
+    // WriterThreadOnly, lastPublished is -1 before the first publish
+    private int back, lastPublished;
+    // ReaderThreadOnly
+    private int front;
+
+    private volatile long publishedCount, droppedCount, repeatedCount;
+
+    @SuppressWarnings("unchecked")
+    public TripleBuffer(@NotNull Supplier<? extends T> factory) {
+        this.buffers = (T[]) new Object[] {factory.get(), factory.get(), factory.get()};
+        this.sequences = new long[3];
+        this.front = 0;
+        this.middle = new AtomicInteger(1);
+        this.back = 2;
+        this.lastPublished = -1;
+    }
+
+    // the buffer to fill for the next frame, it holds an old frame, not necessarily the last one published
+    // WriterThreadOnly
+    public @NotNull T beginWrite() {
+        return buffers[back];
+    }
+
+    // makes the frame written in beginWrite() the newest one, the writer gets another buffer back
+    // WriterThreadOnly
+    public void publish() {
+        var sequence = publishedCount + 1;
+        sequences[back] = sequence;
+        // the volatile swap publishes the frame (and its sequence) to the reader
+        var previous = middle.getAndSet(back | DIRTY);
+        if((previous & DIRTY) != 0) {
+            droppedCount++;
+        }
+        lastPublished = back;
+        back = previous & INDEX_MASK;
+        publishedCount = sequence;
+    }
+
+    // the frame of the last publish, null before the first one
+    // it is the middle or the front buffer until the next publish, never the back one, so the writer can read it
+    // while filling the next frame but must not write it, the reader may be reading it
+    // WriterThreadOnly
+    public @Nullable T getLastPublished() {
+        return lastPublished < 0? null : buffers[lastPublished];
+    }
+
+    // the newest complete frame, valid until the next acquire, never blocks
+    // before the first publish it is one of the buffers as the factory created them
+    // ReaderThreadOnly
+    public @NotNull T acquire() {
+        if((middle.get() & DIRTY) == 0) {
+            if(sequences[front] != 0) {
+                repeatedCount++;
+            }
+            return buffers[front];
+        }
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return buffers[front];
+    }
+
+    // sequence number of the frame returned by the last acquire, 0 if nothing was published then
+    // ReaderThreadOnly
+    public long getFrontSequence() {
+        return sequences[front];
+    }
+
+    @CalledInAnyThread
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    // frames published but overwritten before the reader took them, the update runs faster than render
+    @CalledInAnyThread
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    // acquires that got the same frame as the previous one, render runs faster than the update
+    @CalledInAnyThread
+    public long getRepeatedCount() {
+        return repeatedCount;
+    }
+}
@@ -0,0 +1,253 @@
+package com.dah.rgb.utils.logging;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.StreamHandler;
+
+// hands log calls to a background writer through a preallocated ring of records, so the calling thread
+// (audio, GL debug callback...) never formats or does I/O
+//   the level is checked before anything else, a disabled call costs an isLoggable
+//   the caller is only walked for levels at or above callerLevel, and only its frame is kept,
+//   class and method names are resolved by the writer
+//   slots are sequenced the same way as MpscRingQueue, a full ring drops the record and counts it,
+//   the writer reports the drops
+//   the writer publishes a batch to the logger handlers, then flushes them once
+public class AsyncLogger {
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final @NotNull Logger logger;
+    private final int callerLevel;
+    private final long flushIntervalNanos;
+
+    private final int capacity, mask;
+    private final @NotNull AtomicLongArray sequences;
+    private final @NotNull AtomicLong producerIndex;
+    private volatile long consumerIndex;
+    // plain arrays, published by the volatile sequence store
+    private final Level[] levels;
+    private final String[] messages;
+    private final Throwable[] thrown;
+    private final StackWalker.StackFrame[] callers;
+    private final long[] millis, threadIds;
+
+    private final @NotNull AtomicLong droppedCount;
+    private long reportedDrops;
+    private final @NotNull Thread writer;
+    private volatile boolean closed;
+
+    public AsyncLogger(@NotNull Logger logger, int capacity, @NotNull Level callerLevel, long flushIntervalNanos) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.logger = logger;
+        this.callerLevel = callerLevel.intValue();
+        this.flushIntervalNanos = Math.max(1, flushIntervalNanos);
+        this.capacity = capacity <= 1? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.sequences = new AtomicLongArray(this.capacity);
+        for(int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.producerIndex = new AtomicLong();
+        this.levels = new Level[this.capacity];
+        this.messages = new String[this.capacity];
+        this.thrown = new Throwable[this.capacity];
+        this.callers = new StackWalker.StackFrame[this.capacity];
+        this.millis = new long[this.capacity];
+        this.threadIds = new long[this.capacity];
+        this.droppedCount = new AtomicLong();
+
+        writer = new Thread(this::runWriter, "LogWriter");
+        writer.setDaemon(true);
+        writer.start();
+        // the writer is a daemon, whatever is still queued at exit gets written here
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "LogWriterShutdown"));
+    }
+
+    // ConsoleHandler flushes every record, with the default configuration (the logger goes to the console handler
+    // of the root) the logger gets its own stderr handler instead, which the writer flushes once per batch
+    // custom handler configurations are left alone
+    public static void batchConsoleOutput(@NotNull Logger logger) {
+        var root = Logger.getLogger("");
+        if(logger.getHandlers().length != 0 || !logger.getUseParentHandlers() || logger.getParent() != root
+                || root.getHandlers().length != 1 || !(root.getHandlers()[0] instanceof ConsoleHandler console)) {
+            return;
+        }
+        var handler = new StreamHandler(System.err, console.getFormatter());
+        handler.setLevel(console.getLevel());
+        logger.addHandler(handler);
+        logger.setUseParentHandlers(false);
+    }
+
+    @CalledInAnyThread
+    public boolean isLoggable(@NotNull Level level) {
+        return logger.isLoggable(level);
+    }
+
+    // skip is the number of frames above the caller of this method to skip to find the logged caller
+    @CalledInAnyThread
+    public void log(@NotNull Level level, @NotNull String msg, @Nullable Throwable ex, int skip) {
+        if(!logger.isLoggable(level)) {
+            return;
+        }
+        StackWalker.StackFrame caller = null;
+        if(level.intValue() >= callerLevel) {
+            caller = WALKER.walk(frames -> frames.skip(skip + 1).findFirst()).orElse(null);
+        }
+        if(closed) {
+            publish(level, msg, ex, caller, System.currentTimeMillis(), Thread.currentThread().getId());
+            return;
+        }
+
+        long index;
+        int slot;
+        while(true) {
+            index = producerIndex.get();
+            slot = (int) index & mask;
+            var diff = sequences.get(slot) - index;
+            if(diff == 0) {
+                if(producerIndex.compareAndSet(index, index + 1)) {
+                    break;
+                }
+            } else if(diff < 0) {
+                // the writer was already woken up when the ring got half full
+                droppedCount.incrementAndGet();
+                return;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        levels[slot] = level;
+        messages[slot] = msg;
+        thrown[slot] = ex;
+        callers[slot] = caller;
+        millis[slot] = System.currentTimeMillis();
+        threadIds[slot] = Thread.currentThread().getId();
+        sequences.set(slot, index + 1);
+
+        // close() may have drained the ring between the check above and the store, so the record would
+        // never be written, whichever of us sees the other's volatile write last does the flush
+        if(closed) {
+            flush();
+            return;
+        }
+        // the writer wakes up by itself every flush interval, severe records and a filling ring don't wait for it
+        if(level.intValue() >= Level.SEVERE.intValue() || index - consumerIndex >= capacity / 2) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void runWriter() {
+        while(!closed) {
+            if(writeBatch() == 0) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    // synchronized so that flush() can drain from another thread than the writer
+    private synchronized int writeBatch() {
+        int written = 0;
+        while(true) {
+            var index = consumerIndex;
+            var slot = (int) index & mask;
+            if(sequences.get(slot) != index + 1) {
+                break;
+            }
+            var level = levels[slot];
+            var msg = messages[slot];
+            var ex = thrown[slot];
+            var caller = callers[slot];
+            var time = millis[slot];
+            var threadId = threadIds[slot];
+            messages[slot] = null;
+            thrown[slot] = null;
+            callers[slot] = null;
+            sequences.set(slot, index + capacity);
+            consumerIndex = index + 1;
+
+            publish(level, msg, ex, caller, time, threadId);
+            written++;
+        }
+        var drops = droppedCount.get();
+        if(drops != reportedDrops) {
+            publish(Level.WARNING, "Log ring was full, " + (drops - reportedDrops) + " records were dropped",
+                    null, null, System.currentTimeMillis(), Thread.currentThread().getId());
+            reportedDrops = drops;
+            written++;
+        }
+        if(written > 0) {
+            flushHandlers();
+        }
+        return written;
+    }
+
+    private void publish(@NotNull Level level, @NotNull String msg, @Nullable Throwable ex,
+                         StackWalker.@Nullable StackFrame caller, long time, long threadId) {
+        var record = new LogRecord(level, msg);
+        record.setLoggerName(logger.getName());
+        record.setInstant(Instant.ofEpochMilli(time));
+        record.setLongThreadID(threadId);
+        record.setThrown(ex);
+        // setting the source, even to null, keeps the record from inferring the writer thread as the caller
+        record.setSourceClassName(caller == null? null : caller.getClassName());
+        record.setSourceMethodName(caller == null? null : caller.getMethodName());
+        logger.log(record);
+    }
+
+    private void flushHandlers() {
+        for(var current = logger; current != null; current = current.getParent()) {
+            for(var handler : current.getHandlers()) {
+                handler.flush();
+            }
+            if(!current.getUseParentHandlers()) {
+                break;
+            }
+        }
+    }
+
+    // writes everything queued so far from the calling thread, e.g. before exiting or after a crash
+    @CalledInAnyThread
+    public void flush() {
+        writeBatch();
+    }
+
+    // later calls are published synchronously
+    @CalledInAnyThread
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        flush();
+    }
+
+    @CalledInAnyThread
+    public int size() {
+        var size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @CalledInAnyThread
+    public int capacity() {
+        return capacity;
+    }
+
+    @CalledInAnyThread
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @CalledInAnyThread
+    public @NotNull Logger getLogger() {
+        return logger;
+    }
+}
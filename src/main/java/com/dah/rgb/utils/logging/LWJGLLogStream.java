@@ -9,9 +9,8 @@ public class LWJGLLogStream extends LogStream {
     public static final int LWJGL_LOG_NUM_FRAME_SKIPPED = Config.LWJGL_LOG_NUM_FRAME_SKIPPED.get(2);
     public LWJGLLogStream() {
         super(msg -> {
-            msg = msg.trim();
             switch(msg) {
-                case "", "[LWJGL]" -> {}
+                case "[LWJGL]" -> {}
                 default -> Game.log(Level.INFO, "LWJGL: " + msg, LWJGL_LOG_NUM_FRAME_SKIPPED);
             }
         });
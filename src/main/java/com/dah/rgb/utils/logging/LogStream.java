@@ -3,19 +3,34 @@ package com.dah.rgb.utils.logging;
 import com.dah.rgb.annotations.NotNull;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
 import java.util.function.Consumer;
 
+// forwards each flushed chunk as one trimmed message, blank chunks (the lone line breaks of println)
+// are skipped without decoding them
 public class LogStream extends PrintStream {
     public LogStream(@NotNull Consumer<String> logger) {
+        this(logger, Charset.defaultCharset());
+    }
+
+    public LogStream(@NotNull Consumer<String> logger, @NotNull Charset charset) {
         super(new ByteArrayOutputStream(){
             @Override
-            public void flush() throws IOException {
-                super.flush();
-                logger.accept(toString());
+            public synchronized void flush() {
+                // ascii whitespace and control characters never start a multibyte sequence
+                int start = 0, end = count;
+                while(start < end && (buf[start] & 0xFF) <= ' ') {
+                    start++;
+                }
+                while(end > start && (buf[end - 1] & 0xFF) <= ' ') {
+                    end--;
+                }
+                if(start < end) {
+                    logger.accept(new String(buf, start, end - start, charset));
+                }
                 reset();
             }
-        }, true);
+        }, true, charset);
     }
 }
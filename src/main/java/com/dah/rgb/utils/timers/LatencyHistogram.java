@@ -0,0 +1,135 @@
+package com.dah.rgb.utils.timers;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// lock-free log-linear histogram of durations in nanoseconds, in the spirit of HdrHistogram:
+// every power of two is split into SUB_BUCKETS linear buckets, so a value is off by at most 1/64 (~1.6%)
+// values below SUB_BUCKETS ns are exact, values above MAX_VALUE land in the last bucket (max stays exact)
+// record never allocates, snapshot can run from any thread while recording goes on
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // ~68 seconds
+    public static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final @NotNull AtomicLongArray counts;
+    private final @NotNull AtomicLong total, sum, max;
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        total = new AtomicLong();
+        sum = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    private static int indexOf(long value) {
+        if(value < SUB_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        value = Math.min(value, MAX_VALUE);
+        var shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    // highest value that falls in the bucket
+    private static long highestValueOf(int index) {
+        if(index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        var shift = (index >>> SUB_BUCKET_BITS) - 1;
+        var top = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((top + 1) << shift) - 1;
+    }
+
+    @CalledInAnyThread
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(nanos));
+        total.incrementAndGet();
+        sum.addAndGet(Math.max(0, nanos));
+        var currentMax = max.get();
+        while(nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    // a recording racing with a reset lands either in the returned snapshot or in the next one
+    @CalledInAnyThread
+    public @NotNull Snapshot snapshot(boolean reset) {
+        var copy = new long[BUCKETS];
+        long copyTotal = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            copy[i] = reset? counts.getAndSet(i, 0) : counts.get(i);
+            copyTotal += copy[i];
+        }
+        var copySum = reset? sum.getAndSet(0) : sum.get();
+        var copyMax = reset? max.getAndSet(0) : max.get();
+        if(reset) {
+            total.addAndGet(-copyTotal);
+        }
+        return new Snapshot(copy, copyTotal, copySum, copyMax);
+    }
+
+    @CalledInAnyThread
+    public void reset() {
+        snapshot(true);
+    }
+
+    @CalledInAnyThread
+    public long getCount() {
+        return total.get();
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count, sum, max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        // in nanoseconds, 0 when empty
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0? 0.0 : (double) sum / count;
+        }
+
+        // in nanoseconds, the highest value of the bucket holding the percentile (0 to 100)
+        public long getPercentile(double percentile) {
+            if(count == 0) {
+                return 0;
+            }
+            var rank = (long) Math.ceil(Math.max(0.0, Math.min(100.0, percentile)) / 100.0 * count);
+            rank = Math.max(1, rank);
+            long seen = 0;
+            for(int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if(seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "n=%d mean=%.3fms p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms".formatted(count,
+                    getMean() * 1e-6, getPercentile(50) * 1e-6, getPercentile(99) * 1e-6,
+                    getPercentile(99.9) * 1e-6, max * 1e-6);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.dah.rgb.utils.timers;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+
+// loop instrumentation of one engine thread, written by that thread only and read from anywhere
+//   loop: time between the starts of two loops (the frame time of the graphics and main threads)
+//   task: time spent running one executor work
+//   idle: time spent parked waiting for works or a deadline
+public class ThreadTimings {
+    private final @NotNull String name;
+    private final @NotNull LatencyHistogram loopTimes, taskTimes, idleTimes;
+    // milliseconds, primitive so the loop doesn't box a Double every iteration
+    private volatile double deltaTime;
+
+    public ThreadTimings(@NotNull String name) {
+        this.name = name;
+        this.loopTimes = new LatencyHistogram();
+        this.taskTimes = new LatencyHistogram();
+        this.idleTimes = new LatencyHistogram();
+    }
+
+    // CalledInTheThread
+    public void recordLoop(long nanos) {
+        deltaTime = nanos * 1e-6;
+        loopTimes.record(nanos);
+    }
+
+    // CalledInTheThread
+    public void recordTask(long nanos) {
+        taskTimes.record(nanos);
+    }
+
+    // CalledInTheThread
+    public void recordIdle(long nanos) {
+        idleTimes.record(nanos);
+    }
+
+    @CalledInAnyThread
+    public @NotNull String getName() {
+        return name;
+    }
+
+    // duration of the last loop in milliseconds
+    @CalledInAnyThread
+    public double getDeltaTime() {
+        return deltaTime;
+    }
+
+    @CalledInAnyThread
+    public @NotNull LatencyHistogram getLoopTimes() {
+        return loopTimes;
+    }
+
+    @CalledInAnyThread
+    public @NotNull LatencyHistogram getTaskTimes() {
+        return taskTimes;
+    }
+
+    @CalledInAnyThread
+    public @NotNull LatencyHistogram getIdleTimes() {
+        return idleTimes;
+    }
+
+    // reset starts a new window, e.g. snapshot(true) once per second to log the p99 of the last second
+    @CalledInAnyThread
+    public @NotNull Snapshot snapshot(boolean reset) {
+        return new Snapshot(name, loopTimes.snapshot(reset), taskTimes.snapshot(reset), idleTimes.snapshot(reset));
+    }
+
+    @CalledInAnyThread
+    public void reset() {
+        loopTimes.reset();
+        taskTimes.reset();
+        idleTimes.reset();
+    }
+
+    public record Snapshot(@NotNull String name, LatencyHistogram.@NotNull Snapshot loop,
+                           LatencyHistogram.@NotNull Snapshot task, LatencyHistogram.@NotNull Snapshot idle) {
+        @Override
+        public String toString() {
+            return name + "\n  loop: " + loop + "\n  task: " + task + "\n  idle: " + idle;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.dah.rgb.utils.tracing;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+
+import java.util.function.Consumer;
+
+// preallocated ring of the last spans of one thread, only written by that thread (see Tracing.currentBuffer)
+// a span is a start, a duration, a name and an optional tag, a name can be a Class whose name is only
+// resolved when exporting, so recording never allocates
+// when full the oldest spans are overwritten
+public final class SpanBuffer {
+    private final @NotNull Thread thread;
+    private final int capacity, mask;
+    private final long[] starts, durations;
+    private final Object[] names;
+    private final String[] tags;
+    // number of spans ever recorded, the volatile store publishes the slot
+    private volatile long count;
+
+    SpanBuffer(@NotNull Thread thread, int capacity) {
+        this.thread = thread;
+        this.capacity = capacity <= 1? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.starts = new long[this.capacity];
+        this.durations = new long[this.capacity];
+        this.names = new Object[this.capacity];
+        this.tags = new String[this.capacity];
+    }
+
+    // returns the start to pass to end, or Tracing.NOT_TRACED when tracing is off
+    // CalledInTheThread
+    public long begin() {
+        return Tracing.isEnabled()? System.nanoTime() : Tracing.NOT_TRACED;
+    }
+
+    // CalledInTheThread
+    public void end(long start, @NotNull Object name) {
+        end(start, name, null);
+    }
+
+    // a span begun while tracing was off is ignored, so toggling in the middle of a span is harmless
+    // CalledInTheThread
+    public void end(long start, @NotNull Object name, @Nullable String tag) {
+        if(start == Tracing.NOT_TRACED) {
+            return;
+        }
+        var index = count;
+        var slot = (int) index & mask;
+        starts[slot] = start;
+        durations[slot] = System.nanoTime() - start;
+        names[slot] = name;
+        tags[slot] = tag;
+        count = index + 1;
+    }
+
+    // spans still in the buffer, oldest first, spans overwritten while reading are skipped
+    @CalledInAnyThread
+    void forEach(@NotNull Consumer<Span> consumer) {
+        var end = count;
+        var begin = Math.max(0, end - capacity);
+        var copy = new Span[(int) (end - begin)];
+        for(long i = begin; i < end; i++) {
+            var slot = (int) i & mask;
+            copy[(int) (i - begin)] = new Span(starts[slot], durations[slot], names[slot], tags[slot]);
+        }
+        // the writer may have lapped us while copying, those slots hold newer spans than their index
+        // (the slot of index count - capacity can be in the middle of being written)
+        var overwritten = count - capacity + 1;
+        for(long i = Math.max(begin, overwritten); i < end; i++) {
+            consumer.accept(copy[(int) (i - begin)]);
+        }
+    }
+
+    @CalledInAnyThread
+    public @NotNull Thread getThread() {
+        return thread;
+    }
+
+    @CalledInAnyThread
+    public long getCount() {
+        return count;
+    }
+
+    @CalledInAnyThread
+    public int capacity() {
+        return capacity;
+    }
+
+    record Span(long start, long duration, Object name, @Nullable String tag) {
+        @NotNull String nameString() {
+            return name instanceof Class<?> type? type.getName() : String.valueOf(name);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.dah.rgb.utils.tracing;
+
+import com.dah.rgb.annotations.CalledInAnyThread;
+import com.dah.rgb.annotations.NotNull;
+import com.dah.rgb.annotations.Nullable;
+import com.dah.rgb.utils.Config;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// span instrumentation of the engine threads (loops, frames, executor works, updates)
+// every thread records into its own SpanBuffer, a disabled span costs a volatile read
+// export writes the Chrome trace-event JSON format, which chrome://tracing and ui.perfetto.dev open as is
+// the buffers of threads that died are kept until the next export, at most MAX_DEAD_BUFFERS of them,
+// so pools that replace their idle workers don't grow the list forever
+public final class Tracing {
+    public static final long NOT_TRACED = Long.MIN_VALUE;
+    public static final int BUFFER_CAPACITY = Config.TRACE_BUFFER_CAPACITY.get(16384);
+    private static final int MAX_DEAD_BUFFERS = 16;
+
+    private static volatile boolean enabled = Config.TRACE.get(false);
+    private static final @NotNull List<@NotNull SpanBuffer> BUFFERS = new CopyOnWriteArrayList<>();
+    private static final @NotNull ThreadLocal<SpanBuffer> CURRENT = ThreadLocal.withInitial(() -> {
+        var buffer = new SpanBuffer(Thread.currentThread(), BUFFER_CAPACITY);
+        pruneDeadBuffers(MAX_DEAD_BUFFERS);
+        BUFFERS.add(buffer);
+        return buffer;
+    });
+    // trace timestamps are relative to this, so they stay small in the JSON
+    private static final long EPOCH = System.nanoTime();
+
+    private Tracing() {
+    }
+
+    @CalledInAnyThread
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    @CalledInAnyThread
+    public static void setEnabled(boolean enabled) {
+        Tracing.enabled = enabled;
+    }
+
+    // the buffer of the calling thread, threads that record every loop should keep it in a field
+    @CalledInAnyThread
+    public static @NotNull SpanBuffer currentBuffer() {
+        return CURRENT.get();
+    }
+
+    // null while tracing is off, for threads that only trace now and then (pool workers), so they don't
+    // get a buffer of BUFFER_CAPACITY spans they never fill
+    @CalledInAnyThread
+    public static @Nullable SpanBuffer currentBufferIfEnabled() {
+        return enabled? CURRENT.get() : null;
+    }
+
+    // drops the oldest buffers of dead threads beyond keep
+    private static void pruneDeadBuffers(int keep) {
+        var dead = 0;
+        for(var buffer : BUFFERS) {
+            if(!buffer.getThread().isAlive()) {
+                dead++;
+            }
+        }
+        for(var buffer : BUFFERS) {
+            if(dead <= keep) {
+                break;
+            }
+            if(!buffer.getThread().isAlive() && BUFFERS.remove(buffer)) {
+                dead--;
+            }
+        }
+    }
+
+    @CalledInAnyThread
+    public static @NotNull List<@NotNull SpanBuffer> getBuffers() {
+        return List.copyOf(BUFFERS);
+    }
+
+    @CalledInAnyThread
+    public static void export(@NotNull Path file) throws IOException {
+        try(var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            export(writer);
+        }
+    }
+
+    // one complete event ("X") per span and a thread_name metadata event per thread, tags go into args.tag
+    // the buffers of dead threads are exported one last time and dropped
+    @CalledInAnyThread
+    public static void export(@NotNull Writer out) throws IOException {
+        var writer = out instanceof BufferedWriter buffered? buffered : new BufferedWriter(out);
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        var first = true;
+        for(var buffer : BUFFERS) {
+            var thread = buffer.getThread();
+            var tid = thread.getId();
+            if(!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.write("\n{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":1,\"tid\":" + tid
+                    + ",\"args\":{\"name\":\"" + escape(thread.getName()) + "\"}}");
+            var events = new StringBuilder();
+            buffer.forEach(span -> {
+                events.append(",\n{\"ph\":\"X\",\"pid\":1,\"tid\":").append(tid)
+                        .append(",\"name\":\"").append(escape(span.nameString()))
+                        .append("\",\"ts\":").append(micros(span.start() - EPOCH))
+                        .append(",\"dur\":").append(micros(span.duration()));
+                if(span.tag() != null) {
+                    events.append(",\"args\":{\"tag\":\"").append(escape(span.tag())).append("\"}");
+                }
+                events.append('}');
+            });
+            writer.append(events);
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+        pruneDeadBuffers(0);
+    }
+
+    private static @NotNull String micros(long nanos) {
+        return Long.toString(nanos / 1000) + '.' + String.format("%03d", Math.abs(nanos % 1000));
+    }
+
+    private static @NotNull String escape(@NotNull String value) {
+        var builder = new StringBuilder(value.length());
+        for(int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch(c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                default -> {
+                    if(c < ' ') {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.toString();
+    }
+}
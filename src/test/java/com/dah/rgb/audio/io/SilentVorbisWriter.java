@@ -0,0 +1,152 @@
+package com.dah.rgb.audio.io;
+
+import com.dah.rgb.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// writes valid Ogg Vorbis files of a given length without an encoder: one codebook, one floor1 without partitions
+// and every audio packet flagged as unused, so they decode to silence
+// decoders still run the inverse MDCT of every packet, only the residue work is skipped
+// shared by the tests and the benchmarks, which have no Vorbis file of their own
+public final class SilentVorbisWriter {
+    // every packet uses the long block, so it adds exactly this many samples
+    public static final int SAMPLES_PER_PACKET = 1024;
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for(int i = 0; i < 256; i++) {
+            int r = i << 24;
+            for(int j = 0; j < 8; j++) {
+                r = (r & 0x80000000) != 0? (r << 1) ^ 0x04c11db7 : r << 1;
+            }
+            CRC_TABLE[i] = r;
+        }
+    }
+
+    private SilentVorbisWriter() {
+    }
+
+    // packetsPerPage controls how many seek points the file has, returns the length in samples per channel
+    public static int write(@NotNull Path path, int samples, int sampleRate, int channels, int packetsPerPage) throws IOException {
+        var packets = samples / SAMPLES_PER_PACKET + 1;
+        try(var out = Files.newOutputStream(path)) {
+            int sequence = 0;
+            writePage(out, 2, 0, sequence++, new byte[][] {identificationHeader(sampleRate, channels)});
+            writePage(out, 0, 0, sequence++, new byte[][] {commentHeader(), setupHeader()});
+            for(int written = 0; written < packets; ) {
+                var count = Math.min(packetsPerPage, packets - written);
+                var page = new byte[count][];
+                for(int i = 0; i < count; i++) {
+                    // a single 0 bit: audio packet, mode 0, then the floor flags the channel unused
+                    page[i] = new byte[1];
+                }
+                written += count;
+                // the first packet only primes the decoder, so the granule of a page is (packets so far - 1) * 1024
+                writePage(out, written == packets? 4 : 0, (written - 1L) * SAMPLES_PER_PACKET, sequence++, page);
+            }
+        }
+        return (packets - 1) * SAMPLES_PER_PACKET;
+    }
+
+    private static byte[] identificationHeader(int sampleRate, int channels) {
+        var header = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+        header.put((byte) 1).put(new byte[] {'v', 'o', 'r', 'b', 'i', 's'});
+        header.putInt(0).put((byte) channels).putInt(sampleRate);
+        header.putInt(0).putInt(128000).putInt(0);
+        // both block sizes 2^11, so every packet decodes the same number of samples
+        header.put((byte) (11 | (11 << 4))).put((byte) 1);
+        return header.array();
+    }
+
+    private static byte[] commentHeader() {
+        var vendor = new byte[] {'r', 'g', 'b'};
+        var header = ByteBuffer.allocate(7 + 4 + vendor.length + 4 + 1).order(ByteOrder.LITTLE_ENDIAN);
+        header.put((byte) 3).put(new byte[] {'v', 'o', 'r', 'b', 'i', 's'});
+        header.putInt(vendor.length).put(vendor).putInt(0).put((byte) 1);
+        return header.array();
+    }
+
+    private static byte[] setupHeader() {
+        var bits = new BitWriter();
+        bits.put(5, 8);
+        for(var c : new byte[] {'v', 'o', 'r', 'b', 'i', 's'}) {
+            bits.put(c, 8);
+        }
+        // one codebook: 2 entries of length 1, no lookup
+        bits.put(0, 8);
+        bits.put(0x564342, 24).put(1, 16).put(2, 24).put(0, 1).put(0, 1).put(0, 5).put(0, 5).put(0, 4);
+        // one placeholder time domain transform
+        bits.put(0, 6).put(0, 16);
+        // one floor1 without partitions
+        bits.put(0, 6).put(1, 16).put(0, 5).put(0, 2).put(0, 4);
+        // one residue0 that is never reached
+        bits.put(0, 6).put(0, 16).put(0, 24).put(0, 24).put(0, 24).put(0, 6).put(0, 8).put(0, 3).put(0, 1);
+        // one mapping, one mode on the long block
+        bits.put(0, 6).put(0, 16).put(0, 1).put(0, 1).put(0, 2).put(0, 8).put(0, 8).put(0, 8);
+        bits.put(0, 6).put(0, 1).put(0, 16).put(0, 16).put(0, 8);
+        // framing bit
+        bits.put(1, 1);
+        return bits.toByteArray();
+    }
+
+    private static void writePage(OutputStream out, int type, long granule, int sequence, byte[][] packets) throws IOException {
+        int segments = 0, size = 0;
+        for(var packet : packets) {
+            segments += packet.length / 255 + 1;
+            size += packet.length;
+        }
+        var page = ByteBuffer.allocate(27 + segments + size).order(ByteOrder.LITTLE_ENDIAN);
+        page.put(new byte[] {'O', 'g', 'g', 'S'}).put((byte) 0).put((byte) type);
+        page.putLong(granule).putInt(0x1234).putInt(sequence).putInt(0).put((byte) segments);
+        for(var packet : packets) {
+            for(int n = packet.length; ; n -= 255) {
+                if(n < 255) {
+                    page.put((byte) n);
+                    break;
+                }
+                page.put((byte) 255);
+            }
+        }
+        for(var packet : packets) {
+            page.put(packet);
+        }
+        var bytes = page.array();
+        int crc = 0;
+        for(var b : bytes) {
+            crc = (crc << 8) ^ CRC_TABLE[((crc >>> 24) ^ b) & 0xff];
+        }
+        page.putInt(22, crc);
+        out.write(bytes);
+    }
+
+    // Vorbis packs fields from the least significant bit up
+    private static final class BitWriter {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int accumulator, count;
+
+        private BitWriter put(int value, int bits) {
+            for(int i = 0; i < bits; i++) {
+                accumulator |= ((value >>> i) & 1) << count;
+                if(++count == 8) {
+                    bytes.write(accumulator);
+                    accumulator = count = 0;
+                }
+            }
+            return this;
+        }
+
+        private byte[] toByteArray() {
+            if(count > 0) {
+                bytes.write(accumulator);
+                accumulator = count = 0;
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.dah.rgb.audio.io;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.system.MemoryUtil.memAllocShort;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+// Music.seek relies on the decoder landing on the exact sample, with silent files the only observable
+// position is how many samples are left to decode after the seek
+class VorbisSeekTest {
+    private static final int SAMPLE_RATE = 44100, CHANNELS = 2;
+    private static final int TARGETS = 2000;
+
+    @TempDir
+    static Path folder;
+    private static Path file;
+    private static int length;
+    private static ShortBuffer pcm;
+
+    @BeforeAll
+    static void writeFile() throws IOException {
+        file = folder.resolve("seek.ogg");
+        // 2 seconds over 13 pages, so seeks cross page boundaries without making every check decode for long
+        length = SilentVorbisWriter.write(file, 2 * SAMPLE_RATE, SAMPLE_RATE, CHANNELS, 10);
+        pcm = memAllocShort(4096 * CHANNELS);
+    }
+
+    @AfterAll
+    static void freeBuffer() {
+        memFree(pcm);
+    }
+
+    @Test
+    void lengthMatchesTheLastGranule() throws IOException {
+        try(var source = AudioSource.loadVorbisSTB(file)) {
+            assertEquals(CHANNELS, source.getChannels());
+            assertEquals(SAMPLE_RATE, source.getSampleRate());
+            assertEquals(length, source.getSamplesLength());
+            assertEquals(length, decodeRest(source));
+        }
+    }
+
+    @Test
+    void seeksAreSampleAccurate() throws IOException {
+        int[] edges = {0, 1, 1023, 1024, 1025, 10 * 1024 - 1, 10 * 1024, 10 * 1024 + 1, length / 2, length - 1};
+        var random = new Random(42);
+        try(var source = AudioSource.loadVorbisSTB(file)) {
+            for(int i = 0; i < TARGETS; i++) {
+                var target = i < edges.length? edges[i] : random.nextInt(length);
+                source.seek(target);
+                assertEquals(length - target, decodeRest(source), "samples left after seeking to " + target);
+            }
+        }
+    }
+
+    private static long decodeRest(AudioSource source) {
+        long total = 0;
+        int decoded;
+        while((decoded = source.getSamples(pcm.clear())) > 0) {
+            total += decoded;
+        }
+        return total;
+    }
+}
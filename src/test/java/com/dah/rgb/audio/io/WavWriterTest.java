@@ -0,0 +1,67 @@
+package com.dah.rgb.audio.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WavWriterTest {
+    private static final int SAMPLE_RATE = 48000, CHANNELS = 2;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void headerDescribesTheWrittenData() throws IOException {
+        var file = folder.resolve("out.wav");
+        var pcm = ByteBuffer.allocateDirect(300 * CHANNELS * Short.BYTES).order(ByteOrder.nativeOrder());
+        for(int i = 0; pcm.hasRemaining(); i++) {
+            pcm.putShort((short) (i * 37));
+        }
+        try(var writer = new WavWriter(file, CHANNELS, SAMPLE_RATE)) {
+            // written in two uneven blocks, like a loopback output cut at its maximum length
+            writer.write(pcm.flip().limit(128 * CHANNELS * Short.BYTES));
+            writer.write(pcm.limit(pcm.capacity()));
+            assertEquals(300, writer.getFrames());
+            assertEquals(300L * CHANNELS * Short.BYTES, writer.getDataBytes());
+        }
+
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        var dataBytes = 300 * CHANNELS * Short.BYTES;
+        assertEquals(44 + dataBytes, bytes.capacity());
+        assertEquals(0x46464952, bytes.getInt(0), "RIFF");
+        assertEquals(36 + dataBytes, bytes.getInt(4));
+        assertEquals(0x45564157, bytes.getInt(8), "WAVE");
+        assertEquals(0x20746d66, bytes.getInt(12), "fmt ");
+        assertEquals(16, bytes.getInt(16));
+        assertEquals(1, bytes.getShort(20), "PCM");
+        assertEquals(CHANNELS, bytes.getShort(22));
+        assertEquals(SAMPLE_RATE, bytes.getInt(24));
+        assertEquals(SAMPLE_RATE * CHANNELS * Short.BYTES, bytes.getInt(28));
+        assertEquals(CHANNELS * Short.BYTES, bytes.getShort(32));
+        assertEquals(16, bytes.getShort(34));
+        assertEquals(0x61746164, bytes.getInt(36), "data");
+        assertEquals(dataBytes, bytes.getInt(40));
+        for(int i = 0; i < 300 * CHANNELS; i++) {
+            assertEquals((short) (i * 37), bytes.getShort(44 + i * Short.BYTES), "sample " + i);
+        }
+    }
+
+    @Test
+    void emptyFileHasAValidHeader() throws IOException {
+        var file = folder.resolve("empty.wav");
+        new WavWriter(file, 1, 22050).close();
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(44, bytes.capacity());
+        assertEquals(36, bytes.getInt(4));
+        assertEquals(1, bytes.getShort(22));
+        assertEquals(22050 * Short.BYTES, bytes.getInt(28));
+        assertEquals(0, bytes.getInt(40));
+    }
+}
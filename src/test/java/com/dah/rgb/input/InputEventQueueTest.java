@@ -0,0 +1,148 @@
+package com.dah.rgb.input;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputEventQueueTest {
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(1, new InputEventQueue(1).capacity());
+        assertEquals(16, new InputEventQueue(10).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new InputEventQueue(0));
+    }
+
+    @Test
+    void pollCopiesEveryField() {
+        var queue = new InputEventQueue(4);
+        assertTrue(queue.offer(InputEvent.KEY, 38, 65, 1, 2, 0.5, 0.25, 12.5));
+        var event = new InputEvent();
+        assertTrue(queue.poll(event));
+        assertEquals(InputEvent.KEY, event.type);
+        assertEquals(38, event.device);
+        assertEquals(65, event.code);
+        assertEquals(1, event.action);
+        assertEquals(2, event.mods);
+        assertEquals(0.5, event.x);
+        assertEquals(0.25, event.y);
+        assertEquals(12.5, event.time);
+        assertFalse(queue.poll(event));
+    }
+
+    @Test
+    void fullQueueDropsTheNewEvent() {
+        var queue = new InputEventQueue(8);
+        for(int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(InputEvent.KEY, 0, i, 1, 0, 0.0, 0.0, i));
+        }
+        assertFalse(queue.offer(InputEvent.KEY, 0, 8, 1, 0, 0.0, 0.0, 8));
+        assertEquals(1, queue.getDroppedCount());
+        var codes = new ArrayList<Integer>();
+        assertEquals(8, queue.drain((type, device, code, action, mods, x, y, time) -> codes.add(code)));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), codes);
+    }
+
+    @Test
+    void motionNeverTakesTheLastQuarter() {
+        var queue = new InputEventQueue(16);
+        int accepted = 0;
+        for(int i = 0; i < 100; i++) {
+            var type = i % 2 == 0? InputEvent.CURSOR : InputEvent.GAMEPAD_AXIS;
+            if(queue.offer(type, 0, 0, 0, 0, i, i, i)) {
+                accepted++;
+            }
+        }
+        assertEquals(12, accepted);
+        assertEquals(88, queue.getSkippedMotionCount());
+        assertEquals(0, queue.getDroppedCount());
+        // keys and buttons still get in after the cursor flood
+        for(int i = 0; i < 4; i++) {
+            var type = i % 2 == 0? InputEvent.KEY : InputEvent.MOUSE_BUTTON;
+            assertTrue(queue.offer(type, 0, i, 1, 0, 0.0, 0.0, 100 + i));
+        }
+        assertEquals(16, queue.size());
+        assertFalse(queue.offer(InputEvent.KEY, 0, 4, 1, 0, 0.0, 0.0, 104));
+        assertEquals(1, queue.getDroppedCount());
+
+        // draining makes room for motion again
+        var event = new InputEvent();
+        for(int i = 0; i < 5; i++) {
+            assertTrue(queue.poll(event));
+        }
+        assertTrue(queue.offer(InputEvent.CURSOR, 0, 0, 0, 0, 1.0, 1.0, 105));
+    }
+
+    @Test
+    void drainRespectsLimit() {
+        var queue = new InputEventQueue(8);
+        for(int i = 0; i < 6; i++) {
+            queue.offer(InputEvent.CHAR, 0, i, 0, 0, 0.0, 0.0, i);
+        }
+        var codes = new ArrayList<Integer>();
+        InputEventHandler handler = (type, device, code, action, mods, x, y, time) -> codes.add(code);
+        assertEquals(4, queue.drain(handler, 4));
+        assertEquals(2, queue.drain(handler));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), codes);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void keysSurviveConcurrentCursorTraffic() throws InterruptedException {
+        final int keys = 20_000;
+        var queue = new InputEventQueue(64);
+        var start = new CountDownLatch(1);
+        var keysDone = new CountDownLatch(1);
+        var received = new AtomicLong();
+        var order = new long[1];
+        var threads = new ArrayList<Thread>();
+        threads.add(new Thread(() -> {
+            await(start);
+            for(int i = 0; i < keys; i++) {
+                // fewer keys in flight than the reserved quarter, so only the cursor could push them out
+                while(i - received.get() >= 8 && queue.getDroppedCount() == 0) {
+                    Thread.onSpinWait();
+                }
+                queue.offer(InputEvent.KEY, 0, i, 1, 0, 0.0, 0.0, 0.0);
+            }
+            keysDone.countDown();
+        }));
+        threads.add(new Thread(() -> {
+            await(start);
+            while(keysDone.getCount() > 0) {
+                queue.offer(InputEvent.CURSOR, 0, 0, 0, 0, 1.0, 2.0, 0.0);
+            }
+        }));
+        for(var thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        InputEventHandler handler = (type, device, code, action, mods, x, y, time) -> {
+            if(type == InputEvent.KEY) {
+                assertEquals(order[0]++, code, "keys out of order");
+                received.incrementAndGet();
+            }
+        };
+        while(received.get() < keys && queue.getDroppedCount() == 0) {
+            queue.drain(handler);
+        }
+        for(var thread : threads) {
+            thread.join();
+        }
+        queue.drain(handler);
+        assertEquals(keys, received.get());
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
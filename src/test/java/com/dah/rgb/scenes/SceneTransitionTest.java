@@ -0,0 +1,179 @@
+package com.dah.rgb.scenes;
+
+import com.dah.rgb.game.Game;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SceneTransitionTest {
+    // only a type argument, the scenes never touch their game
+    private abstract static class TestGame extends Game<TestGame> {
+    }
+
+    private static class TestScene extends ChildlessScene<TestGame, NullScene<TestGame, SceneManager<TestGame>>> {
+        private final CompletableFuture<?> preparation;
+        int shows, hides, updates, discards;
+
+        private TestScene(CompletableFuture<?> preparation) {
+            super(null, null);
+            this.preparation = preparation;
+        }
+
+        @Override
+        public CompletableFuture<?> prepare() {
+            return preparation;
+        }
+
+        @Override
+        public void show() {
+            shows++;
+        }
+
+        @Override
+        public void hide() {
+            hides++;
+        }
+
+        @Override
+        public void update() {
+            updates++;
+        }
+
+        @Override
+        public void discard() {
+            discards++;
+        }
+    }
+
+    private static TestScene ready() {
+        return new TestScene(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void swapsOnceThePreparationCompleted() {
+        var manager = new SceneManager<TestGame>();
+        var previous = ready();
+        manager.setCurrentScene(previous);
+        var preparation = new CompletableFuture<Void>();
+        var next = new TestScene(preparation);
+        var transition = manager.transitionTo(next);
+
+        manager.update();
+        manager.update();
+        assertTrue(transition.isPreparing());
+        assertSame(previous, manager.getCurrentScene());
+        assertEquals(2, previous.updates);
+        assertFalse(transition.getShown().isDone());
+        assertNull(transition.getReport());
+
+        preparation.complete(null);
+        manager.update();
+        assertFalse(transition.isPreparing());
+        assertSame(next, manager.getCurrentScene());
+        assertEquals(1, previous.hides);
+        assertEquals(1, next.shows);
+        assertEquals(1, next.updates);
+        assertEquals(0, next.discards);
+        assertSame(next, transition.getShown().join());
+        assertNull(manager.getPendingTransition());
+
+        var report = transition.getReport();
+        assertNotNull(report);
+        assertSame(report, manager.getLastReport());
+        assertFalse(report.cancelled());
+        assertEquals(2, report.updatesWhilePreparing());
+        assertFalse(transition.cancel(), "a shown scene can't be cancelled");
+    }
+
+    @Test
+    void cancelStopsThePreparationAndDiscards() {
+        var manager = new SceneManager<TestGame>();
+        var preparation = new CompletableFuture<Void>();
+        var next = new TestScene(preparation);
+        var transition = manager.transitionTo(next);
+
+        assertTrue(manager.cancelTransition());
+        assertTrue(transition.isCancelled());
+        assertTrue(preparation.isCancelled());
+        assertEquals(1, next.discards);
+        assertThrows(CancellationException.class, () -> transition.getShown().join());
+        assertTrue(transition.getReport().cancelled());
+        assertTrue(transition.cancel(), "cancelling twice is still cancelled");
+        assertEquals(1, next.discards);
+        assertFalse(manager.cancelTransition());
+
+        manager.update();
+        assertNull(manager.getCurrentScene());
+        assertEquals(0, next.shows);
+    }
+
+    @Test
+    void cancelAfterThePreparationCompletedStillDiscards() {
+        var manager = new SceneManager<TestGame>();
+        var next = ready();
+        var transition = manager.transitionTo(next);
+        assertTrue(transition.cancel());
+        assertEquals(1, next.discards);
+        manager.update();
+        assertNull(manager.getCurrentScene());
+        assertEquals(0, next.shows);
+    }
+
+    @Test
+    void aNewTransitionCancelsThePendingOne() {
+        var manager = new SceneManager<TestGame>();
+        var first = new TestScene(new CompletableFuture<>());
+        var second = ready();
+        var firstTransition = manager.transitionTo(first);
+        var secondTransition = manager.transitionTo(second);
+        assertTrue(firstTransition.isCancelled());
+        assertEquals(1, first.discards);
+        assertSame(secondTransition, manager.getPendingTransition());
+
+        manager.update();
+        assertSame(second, manager.getCurrentScene());
+        assertEquals(0, first.shows);
+    }
+
+    @Test
+    void failedPreparationKeepsTheCurrentScene() {
+        var manager = new SceneManager<TestGame>();
+        var previous = ready();
+        manager.setCurrentScene(previous);
+        var failure = new IllegalStateException("missing asset");
+        var next = new TestScene(CompletableFuture.failedFuture(failure));
+        var transition = manager.transitionTo(next);
+
+        manager.update();
+        assertSame(previous, manager.getCurrentScene());
+        assertEquals(0, previous.hides);
+        assertEquals(0, next.shows);
+        assertEquals(1, next.discards);
+        assertFalse(transition.isPreparing());
+        assertFalse(transition.isCancelled());
+        var thrown = assertThrows(CompletionException.class, () -> transition.getShown().join());
+        assertSame(failure, thrown.getCause());
+        assertFalse(transition.cancel(), "a failed transition can't be cancelled");
+        assertNull(manager.getPendingTransition());
+    }
+
+    @Test
+    void throwingPrepareFails() {
+        var manager = new SceneManager<TestGame>();
+        var next = new TestScene(null) {
+            @Override
+            public CompletableFuture<?> prepare() {
+                throw new IllegalStateException("broken");
+            }
+        };
+        var transition = manager.transitionTo(next);
+        manager.update();
+        assertNull(manager.getCurrentScene());
+        assertTrue(transition.getShown().isCompletedExceptionally());
+        assertEquals(1, next.discards);
+    }
+}
@@ -0,0 +1,94 @@
+package com.dah.rgb.utils.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingQueueTest {
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(1, new MpscRingQueue<>(1).capacity());
+        assertEquals(8, new MpscRingQueue<>(5).capacity());
+        assertEquals(16, new MpscRingQueue<>(16).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingQueue<>(0));
+    }
+
+    @Test
+    void fifoAndFull() {
+        var queue = new MpscRingQueue<Integer>(4);
+        assertTrue(queue.isEmpty());
+        for(int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+        for(int i = 0; i < 4; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertNull(queue.poll());
+        // slots are reused after wrapping around
+        for(int round = 0; round < 10; round++) {
+            assertTrue(queue.offer(round));
+            assertEquals(round, queue.poll());
+        }
+    }
+
+    @Test
+    void drainRespectsLimit() {
+        var queue = new MpscRingQueue<Integer>(8);
+        for(int i = 0; i < 6; i++) {
+            queue.offer(i);
+        }
+        var drained = new ArrayList<Integer>();
+        assertEquals(4, queue.drain(drained::add, 4));
+        assertEquals(2, queue.drain(drained::add, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws InterruptedException {
+        final int producers = 4, perProducer = 50_000;
+        var queue = new MpscRingQueue<Long>(64);
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for(int p = 0; p < producers; p++) {
+            final long id = p;
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for(long i = 0; i < perProducer; i++) {
+                    while(!queue.offer(id << 32 | i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        var next = new long[producers];
+        long received = 0;
+        while(received < (long) producers * perProducer) {
+            var element = queue.poll();
+            if(element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            var producer = (int) (element >>> 32);
+            // per producer order is kept
+            assertEquals(next[producer]++, element & 0xFFFFFFFFL);
+            received++;
+        }
+        for(var thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,92 @@
+package com.dah.rgb.utils.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripleBufferTest {
+    @Test
+    void acquireBeforeThePublishGetsAFactoryBuffer() {
+        var buffer = new TripleBuffer<>(() -> new long[1]);
+        assertNotNull(buffer.acquire());
+        assertEquals(0, buffer.getFrontSequence());
+        assertEquals(0, buffer.getRepeatedCount(), "nothing was published, so nothing repeats");
+        assertNull(buffer.getLastPublished());
+    }
+
+    @Test
+    void acquireGetsTheNewestFrame() {
+        var buffer = new TripleBuffer<>(() -> new long[1]);
+        buffer.beginWrite()[0] = 10;
+        buffer.publish();
+        assertEquals(10, buffer.acquire()[0]);
+        assertEquals(1, buffer.getFrontSequence());
+
+        // the reader missed frame 2, it only gets frame 3
+        buffer.beginWrite()[0] = 20;
+        buffer.publish();
+        buffer.beginWrite()[0] = 30;
+        buffer.publish();
+        assertEquals(1, buffer.getDroppedCount());
+        assertEquals(30, buffer.acquire()[0]);
+        assertEquals(3, buffer.getFrontSequence());
+        assertEquals(3, buffer.getPublishedCount());
+
+        // no new frame, the same one again
+        assertEquals(30, buffer.acquire()[0]);
+        assertEquals(1, buffer.getRepeatedCount());
+    }
+
+    @Test
+    void lastPublishedIsNeverTheBackBuffer() {
+        var buffer = new TripleBuffer<>(() -> new long[1]);
+        for(int frame = 1; frame <= 20; frame++) {
+            var state = buffer.beginWrite();
+            var last = buffer.getLastPublished();
+            if(frame > 1) {
+                assertNotSame(state, last);
+                assertEquals(frame - 1, last[0]);
+            }
+            state[0] = frame;
+            buffer.publish();
+            // the reader takes every third frame only
+            if(frame % 3 == 0) {
+                assertEquals(frame, buffer.acquire()[0]);
+                assertSame(buffer.acquire(), buffer.getLastPublished());
+            }
+        }
+    }
+
+    @Test
+    void readerNeverSeesAPartialFrame() throws InterruptedException {
+        final int size = 256, frames = 200_000;
+        var buffer = new TripleBuffer<>(() -> new long[size]);
+        var done = new AtomicBoolean();
+        var writer = new Thread(() -> {
+            for(long frame = 1; frame <= frames; frame++) {
+                var state = buffer.beginWrite();
+                for(int i = 0; i < size; i++) {
+                    state[i] = frame;
+                }
+                buffer.publish();
+            }
+            done.set(true);
+        });
+        writer.start();
+        long lastFrame = 0;
+        while(!done.get() || lastFrame < frames) {
+            var state = buffer.acquire();
+            var frame = state[0];
+            for(int i = 1; i < size; i++) {
+                assertEquals(frame, state[i], "torn frame");
+            }
+            assertTrue(frame >= lastFrame, "frames went back");
+            assertEquals(frame, buffer.getFrontSequence());
+            lastFrame = frame;
+        }
+        writer.join();
+        assertEquals(frames, buffer.getPublishedCount());
+    }
+}
@@ -0,0 +1,122 @@
+package com.dah.rgb.utils.timers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    void emptySnapshot() {
+        var snapshot = new LatencyHistogram().snapshot(false);
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0.0, snapshot.getMean());
+        assertEquals(0, snapshot.getPercentile(99));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        var histogram = new LatencyHistogram();
+        for(int i = 0; i < 128; i++) {
+            histogram.record(i);
+        }
+        var snapshot = histogram.snapshot(false);
+        assertEquals(128, snapshot.getCount());
+        assertEquals(127, snapshot.getMax());
+        assertEquals(63.5, snapshot.getMean(), 1e-9);
+        assertEquals(63, snapshot.getPercentile(50));
+        assertEquals(0, snapshot.getPercentile(0));
+        assertEquals(127, snapshot.getPercentile(100));
+    }
+
+    @Test
+    void percentilesAreWithinTheBucketPrecision() {
+        var random = new Random(7);
+        for(int i = 0; i < 10_000; i++) {
+            var value = 1 + (long) (Math.exp(random.nextDouble() * Math.log(LatencyHistogram.MAX_VALUE)));
+            var histogram = new LatencyHistogram();
+            histogram.record(value);
+            // the bucket top is reported, capped by the exact max, so also record a larger value
+            histogram.record(LatencyHistogram.MAX_VALUE);
+            var reported = histogram.snapshot(false).getPercentile(50);
+            assertTrue(reported >= value, value + " reported as " + reported);
+            assertTrue(reported - value <= value / 64, value + " reported as " + reported);
+        }
+    }
+
+    @Test
+    void percentileRanks() {
+        var histogram = new LatencyHistogram();
+        for(int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        var snapshot = histogram.snapshot(false);
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMax());
+        assertEquals(500_500.0, snapshot.getMean(), 1e-6);
+        assertEquals(500_000, snapshot.getPercentile(50), 500_000 / 64);
+        assertEquals(990_000, snapshot.getPercentile(99), 990_000 / 64);
+        assertEquals(1_000_000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        var histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        var snapshot = histogram.snapshot(false);
+        assertEquals(2, snapshot.getCount());
+        assertEquals(Long.MAX_VALUE, snapshot.getMax());
+        assertEquals(0, snapshot.getPercentile(50));
+        assertTrue(snapshot.getPercentile(100) >= LatencyHistogram.MAX_VALUE);
+    }
+
+    @Test
+    void resetStartsANewWindow() {
+        var histogram = new LatencyHistogram();
+        histogram.record(1_000);
+        histogram.record(2_000);
+        var first = histogram.snapshot(true);
+        assertEquals(2, first.getCount());
+        assertEquals(0, histogram.getCount());
+        histogram.record(10);
+        var second = histogram.snapshot(false);
+        assertEquals(1, second.getCount());
+        assertEquals(10, second.getMax());
+        assertEquals(10, second.getPercentile(100));
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws InterruptedException {
+        final int recorders = 4, perRecorder = 100_000;
+        var histogram = new LatencyHistogram();
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for(int r = 0; r < recorders; r++) {
+            final long id = r;
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                for(int i = 0; i < perRecorder; i++) {
+                    histogram.record(id * 1_000 + i % 1_000);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for(var thread : threads) {
+            thread.join();
+        }
+        var snapshot = histogram.snapshot(false);
+        assertEquals((long) recorders * perRecorder, snapshot.getCount());
+        assertEquals((recorders - 1) * 1_000L + 999, snapshot.getMax());
+    }
+}